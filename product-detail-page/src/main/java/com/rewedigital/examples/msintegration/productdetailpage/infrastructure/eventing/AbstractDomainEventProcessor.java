@@ -4,10 +4,12 @@ import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.e
 import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.exception.MessageProcessingException;
 import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.processed.ProcessedEventService;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
 
 import static java.util.Objects.requireNonNull;
 
@@ -15,6 +17,7 @@ import static java.util.Objects.requireNonNull;
 public abstract class AbstractDomainEventProcessor<P extends EventPayload, E extends DomainEvent<P>> implements DomainEventProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractDomainEventProcessor.class);
+    private static final String VERSION_HEADER = "version";
 
     protected final EventParser eventParser;
     private final Class<E> eventType;
@@ -32,8 +35,12 @@ public abstract class AbstractDomainEventProcessor<P extends EventPayload, E ext
     @Transactional
     @Override
     public EventProcessingState processConsumerRecord(final ConsumerRecord<String, String> consumerRecord) {
+        if (consumerRecord.value() == null) {
+            return processTombstoneRecord(consumerRecord);
+        }
         try {
-            final E eventMessage = eventParser.parseMessage(consumerRecord.value(), eventType);
+            final E eventMessage = eventParser.parseMessage(consumerRecord.value(), contentEncoding(consumerRecord),
+                    eventType);
             final long version = eventMessage.getVersion();
             final String key = eventMessage.getKey();
             final String topic = consumerRecord.topic();
@@ -61,6 +68,39 @@ public abstract class AbstractDomainEventProcessor<P extends EventPayload, E ext
 
     protected abstract EventProcessingState processEvent(E domainEvent);
 
+    /**
+     * Handles the deletion of the aggregate with the given key, announced by a tombstone on a compacted topic.
+     */
+    protected EventProcessingState processTombstone(final String key) {
+        LOG.warn("Unexpected tombstone with key '{}'", key);
+        return EventProcessingState.UNEXPECTED_ERROR;
+    }
+
+    /**
+     * A tombstone has no envelope, its version is sent as header. Without it the tombstone is applied regardless of
+     * the versions processed before.
+     */
+    private EventProcessingState processTombstoneRecord(final ConsumerRecord<String, String> consumerRecord) {
+        final String key = consumerRecord.key();
+        final String topic = consumerRecord.topic();
+        final Header header = consumerRecord.headers().lastHeader(VERSION_HEADER);
+        final Long version = header == null ? null : Long.valueOf(new String(header.value(), StandardCharsets.UTF_8));
+        if (version != null && skipMessage(topic, key, version)) {
+            LOG.info("Skipping old {} tombstone with key {} and version {}", topic, key, version);
+            return EventProcessingState.SUCCESS;
+        }
+        final EventProcessingState state = processTombstone(key);
+        if (version != null && state.isFinalState()) {
+            processedEventService.updateLastProcessedVersion(topic, key, version);
+        }
+        return state;
+    }
+
+    private static String contentEncoding(final ConsumerRecord<String, String> consumerRecord) {
+        final Header header = consumerRecord.headers().lastHeader(PayloadDecoder.CONTENT_ENCODING);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
     private boolean skipMessage(final String topic, final String key, final long version) {
         return processedEventService.getLastProcessedVersion(topic, key) > version;
     }
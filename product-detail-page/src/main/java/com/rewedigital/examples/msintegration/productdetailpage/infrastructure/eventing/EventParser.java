@@ -15,8 +15,11 @@ import javax.validation.Validator;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.exception.MessageProcessingException;
 import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.exception.PermanentMessageProcessingException;
 import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.exception.TemporaryMessageProcessingException;
@@ -42,6 +45,51 @@ public class EventParser {
         return kafkaMessage;
     }
 
+    /**
+     * Parses a message whose payload may have been sent compressed, see {@link PayloadDecoder}.
+     */
+    <P extends EventPayload, M extends DomainEvent<P>> M parseMessage(final String message,
+            final String contentEncoding, final Class<M> messageType) throws MessageProcessingException {
+        if (PayloadDecoder.isIdentity(contentEncoding)) {
+            return parseMessage(message, messageType);
+        }
+        if (!PayloadDecoder.isSupported(contentEncoding)) {
+            throw new UnexpectedMessageProcessingException(
+                    format("Unsupported content encoding %s.", contentEncoding));
+        }
+        final M kafkaMessage = deserialize(decompressPayload(message, contentEncoding), messageType);
+        validate(kafkaMessage);
+        return kafkaMessage;
+    }
+
+    private JsonNode decompressPayload(final String message, final String contentEncoding)
+            throws MessageProcessingException {
+        try {
+            final JsonNode envelope = objectMapper.readTree(message);
+            final JsonNode payload = envelope.get("payload");
+            if (envelope.isObject() && payload != null && payload.isTextual()) {
+                ((ObjectNode) envelope).set("payload",
+                        objectMapper.readTree(PayloadDecoder.decode(contentEncoding, payload.binaryValue())));
+            }
+            return envelope;
+        } catch (final JsonParseException e) {
+            throw new PermanentMessageProcessingException("Failed to parse message as JSON.", e);
+        } catch (final IOException e) {
+            throw new PermanentMessageProcessingException(
+                    format("Failed to decompress %s encoded payload.", contentEncoding), e);
+        }
+    }
+
+    private <P extends EventPayload, M extends DomainEvent<P>> M deserialize(final JsonNode message,
+            final Class<M> messageType) throws MessageProcessingException {
+        try {
+            return objectMapper.treeToValue(message, messageType);
+        } catch (final JsonProcessingException e) {
+            throw new UnexpectedMessageProcessingException(
+                    format("Failed to parse message as %s.", messageType.getSimpleName()), e);
+        }
+    }
+
     private <P extends EventPayload, M extends DomainEvent<P>> M deserialize(final String message, final Class<M> messageType)
             throws MessageProcessingException {
         try {
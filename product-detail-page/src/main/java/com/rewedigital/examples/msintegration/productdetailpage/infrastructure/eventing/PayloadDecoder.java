@@ -0,0 +1,55 @@
+package com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+/**
+ * Decompresses event payloads the producer forwarded as they are stored in its outbox, as announced by the
+ * <code>content-encoding</code> header of the record.
+ */
+final class PayloadDecoder {
+
+    static final String CONTENT_ENCODING = "content-encoding";
+
+    private PayloadDecoder() {
+    }
+
+    static boolean isIdentity(final String contentEncoding) {
+        return contentEncoding == null || "identity".equals(contentEncoding);
+    }
+
+    static boolean isSupported(final String contentEncoding) {
+        return isIdentity(contentEncoding) || "gzip".equals(contentEncoding) || "lz4".equals(contentEncoding);
+    }
+
+    static byte[] decode(final String contentEncoding, final byte[] payload) throws IOException {
+        if (isIdentity(contentEncoding)) {
+            return payload;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+        try (final InputStream in = decompressing(contentEncoding, new ByteArrayInputStream(payload))) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static InputStream decompressing(final String contentEncoding, final InputStream in) throws IOException {
+        switch (contentEncoding) {
+            case "gzip":
+                return new GZIPInputStream(in);
+            case "lz4":
+                return new LZ4FrameInputStream(in);
+            default:
+                throw new IllegalArgumentException("unsupported content encoding " + contentEncoding);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.rewedigital.examples.msintegration.productdetailpage.product;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
-import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
 @Entity
@@ -23,8 +22,8 @@ public class Product {
     @NotNull
     private String productNumber;
     private String image;
-    
-    @Version
+
+    // the version of the last event applied, assigned by the events rather than by optimistic locking
     private Long version;
 
     public void setId(final String id) {
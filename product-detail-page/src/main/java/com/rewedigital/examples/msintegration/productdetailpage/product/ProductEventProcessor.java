@@ -10,18 +10,31 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 public class ProductEventProcessor extends AbstractDomainEventProcessor<ProductPayload, ProductEvent> {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractDomainEventProcessor.class);
 
+    private static final List<String> PATCHABLE =
+            Arrays.asList("name", "vendor", "price", "description", "productNumber", "image");
+
     private final JpaProductRepository repository;;
+    private final EntityManager entityManager;
 
     @Inject
-    public ProductEventProcessor(final ConsumerTopicConfig productTopicConfig, final EventParser eventParser, final ProcessedEventService processedEventService, final JpaProductRepository repository) {
+    public ProductEventProcessor(final ConsumerTopicConfig productTopicConfig, final EventParser eventParser,
+                                 final ProcessedEventService processedEventService,
+                                 final JpaProductRepository repository, final EntityManager entityManager) {
         super(ProductEvent.class, productTopicConfig, eventParser, processedEventService);
         this.repository = repository;
+        this.entityManager = entityManager;
     }
 
     @Override
@@ -31,6 +44,11 @@ public class ProductEventProcessor extends AbstractDomainEventProcessor<ProductP
             case "product-updated":
                 repository.save(toProduct(productEvent));
                 break;
+            case "product-patched":
+                return applyChanges(productEvent);
+            case "product-deleted":
+                delete(productEvent.getKey());
+                break;
             default:
                 LOG.warn("Unexpected type: '{}' of message with key '{}'", productEvent.getType(),
                         productEvent.getKey());
@@ -39,6 +57,55 @@ public class ProductEventProcessor extends AbstractDomainEventProcessor<ProductP
         return EventProcessingState.SUCCESS;
     }
 
+    @Override
+    protected EventProcessingState processTombstone(final String key) {
+        delete(key);
+        return EventProcessingState.SUCCESS;
+    }
+
+    private void delete(final String productId) {
+        repository.findById(productId).ifPresent(repository::delete);
+    }
+
+    /**
+     * Sets only the changed attributes, provided the read model is at the base version of the changes. Otherwise a
+     * delta went missing: the event is kept as unprocessable and the last processed version stays behind, so the
+     * complete product event the producer sends for the gap, or at the latest with the next snapshot interval, is
+     * applied. Changes the read model has already reached are redeliveries and skipped.
+     */
+    private EventProcessingState applyChanges(final ProductEvent productEvent) {
+        final ProductPayload payload = productEvent.getPayload();
+        final Map<String, String> changes = payload.getChanges();
+        if (payload.getBaseVersion() == null || changes == null || !PATCHABLE.containsAll(changes.keySet())) {
+            LOG.warn("Invalid changes in message with key '{}' and version {}", productEvent.getKey(),
+                    productEvent.getVersion());
+            return EventProcessingState.UNEXPECTED_ERROR;
+        }
+
+        final Query update = entityManager.createQuery("UPDATE Product p SET "
+                + changes.keySet().stream().map(name -> "p." + name + " = :" + name + ", ")
+                        .collect(Collectors.joining())
+                + "p.version = :version WHERE p.id = :id AND p.version = :baseVersion");
+        changes.forEach(update::setParameter);
+        final int updated = update.setParameter("version", productEvent.getVersion())
+                .setParameter("id", productEvent.getKey())
+                .setParameter("baseVersion", payload.getBaseVersion())
+                .executeUpdate();
+        if (updated == 0 && !isAtLeastAt(productEvent.getKey(), productEvent.getVersion())) {
+            LOG.warn("Cannot apply changes of product '{}' to version {}, the product is not at version {}",
+                    productEvent.getKey(), productEvent.getVersion(), payload.getBaseVersion());
+            return EventProcessingState.UNEXPECTED_ERROR;
+        }
+        return EventProcessingState.SUCCESS;
+    }
+
+    private boolean isAtLeastAt(final String productId, final long version) {
+        return repository.findById(productId)
+                .map(Product::getVersion)
+                .filter(current -> current >= version)
+                .isPresent();
+    }
+
     private Product toProduct(final ProductEvent productEvent) {
         final Product product = new Product();
         product.setId(productEvent.getPayload().getId());
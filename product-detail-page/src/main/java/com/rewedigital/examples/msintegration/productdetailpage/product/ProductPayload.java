@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.EventPayload;
 
 import javax.validation.constraints.NotNull;
+import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -19,6 +20,10 @@ public class ProductPayload extends EventPayload {
     private String productNumber;
     private String image;
 
+    // product-patched events only carry the changed attributes, applicable to the base version
+    private Long baseVersion;
+    private Map<String, String> changes;
+
     public void setId(final String id) {
         this.id = id;
     }
@@ -74,4 +79,20 @@ public class ProductPayload extends EventPayload {
     public String getProductNumber() {
         return productNumber;
     }
+
+    public Long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(final Long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    public Map<String, String> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(final Map<String, String> changes) {
+        this.changes = changes;
+    }
 }
@@ -0,0 +1,129 @@
+package com.rewedigital.examples.msintegration.productdetailpage.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Optional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.EventParser;
+import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.EventProcessingState;
+import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.configuration.SimpleConsumerTopicConfig;
+import com.rewedigital.examples.msintegration.productdetailpage.infrastructure.eventing.processed.ProcessedEventService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductEventProcessorTest {
+
+    @Mock
+    ProcessedEventService processedEventService;
+
+    @Mock
+    JpaProductRepository repository;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    Query query;
+
+    ProductEventProcessor processor;
+
+    @Before
+    public void setUp() {
+        processor = new ProductEventProcessor(new SimpleConsumerTopicConfig(), new EventParser(new ObjectMapper()),
+                processedEventService, repository, entityManager);
+    }
+
+    @Test
+    public void appliesOnlyTheChangedAttributes() {
+        when(entityManager.createQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(1);
+
+        final EventProcessingState state = processor.processEvent(patched(4L, 5L));
+
+        assertThat(state).isEqualTo(EventProcessingState.SUCCESS);
+        verify(entityManager).createQuery("UPDATE Product p SET p.price = :price, p.version = :version "
+                + "WHERE p.id = :id AND p.version = :baseVersion");
+        verify(query).setParameter("price", "€ 1,99");
+        verify(query).setParameter("baseVersion", 4L);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void keepsChangesAsUnprocessableWhenTheBaseVersionIsMissing() {
+        when(entityManager.createQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(0);
+        when(repository.findById("4711")).thenReturn(Optional.of(product(3L)));
+
+        final EventProcessingState state = processor.processEvent(patched(4L, 5L));
+
+        // kept as unprocessable, the last processed version stays behind for the complete product event
+        assertThat(state).isEqualTo(EventProcessingState.UNEXPECTED_ERROR);
+        assertThat(state.isFinalState()).isFalse();
+    }
+
+    @Test
+    public void skipsChangesTheProductHasAlreadyReached() {
+        when(entityManager.createQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(0);
+        when(repository.findById("4711")).thenReturn(Optional.of(product(5L)));
+
+        assertThat(processor.processEvent(patched(4L, 5L))).isEqualTo(EventProcessingState.SUCCESS);
+    }
+
+    @Test
+    public void rejectsChangesOfUnknownAttributes() {
+        final ProductEvent event = patched(4L, 5L);
+        event.getPayload().setChanges(Collections.singletonMap("version", "7"));
+
+        assertThat(processor.processEvent(event)).isEqualTo(EventProcessingState.UNEXPECTED_ERROR);
+        verify(entityManager, never()).createQuery(anyString());
+    }
+
+    @Test
+    public void deletesProductOnTombstone() {
+        final Product product = new Product();
+        when(repository.findById("4711")).thenReturn(Optional.of(product));
+        final ConsumerRecord<String, String> tombstone = new ConsumerRecord<>("products", 0, 0L, "4711", null);
+        tombstone.headers().add("version", "6".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(processor.processConsumerRecord(tombstone)).isEqualTo(EventProcessingState.SUCCESS);
+        verify(repository).delete(product);
+        verify(processedEventService).updateLastProcessedVersion("products", "4711", 6L);
+    }
+
+    private static Product product(final long version) {
+        final Product product = new Product();
+        product.setId("4711");
+        product.setVersion(version);
+        return product;
+    }
+
+    private static ProductEvent patched(final long baseVersion, final long version) {
+        final ProductPayload payload = new ProductPayload();
+        payload.setId("4711");
+        payload.setBaseVersion(baseVersion);
+        payload.setChanges(Collections.singletonMap("price", "€ 1,99"));
+        return new ProductEvent("event-1", "4711", "2017-01-01T09:00:00Z", "product-patched", payload, version,
+                "product");
+    }
+}
@@ -1,19 +1,15 @@
 package com.rewedigital.examples.msintegration.productinformation.infrastructure;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.event.ApplicationEventMulticaster;
-import org.springframework.context.event.SimpleApplicationEventMulticaster;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 @Configuration
 public class AsynchronousSpringEventsConfiguration {
     @Bean(name = "applicationEventMulticaster")
-    public ApplicationEventMulticaster simpleApplicationEventMulticaster() {
-        final SimpleApplicationEventMulticaster eventMulticaster = new SimpleApplicationEventMulticaster();
-
-        // FIXME use fixed size thread pool
-        eventMulticaster.setTaskExecutor(new SimpleAsyncTaskExecutor());
-        return eventMulticaster;
+    public EventHandoffMulticaster simpleApplicationEventMulticaster(
+        @Value("${eventing.handoff.pool.size}") final int poolSize,
+        @Value("${eventing.handoff.queue.capacity}") final int queueCapacity) {
+        return new EventHandoffMulticaster(poolSize, queueCapacity);
     }
 }
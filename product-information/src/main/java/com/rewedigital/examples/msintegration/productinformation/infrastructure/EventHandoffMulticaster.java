@@ -0,0 +1,90 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.ResolvableType;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.DomainEvent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Delivers application events on a fixed size thread pool with a bounded queue. When the queue is full, domain
+ * event messages are dropped and left to the scheduled outbox relay, all other events are delivered on the
+ * publishing thread.
+ */
+public class EventHandoffMulticaster extends SimpleApplicationEventMulticaster implements MeterBinder, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventHandoffMulticaster.class);
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder handoffs = new LongAdder();
+    private final LongAdder handoffNanos = new LongAdder();
+
+    public EventHandoffMulticaster(final int poolSize, final int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("event-handoff-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void multicastEvent(final ApplicationEvent event, @Nullable final ResolvableType eventType) {
+        final ResolvableType type = eventType != null ? eventType : ResolvableType.forInstance(event);
+        for (final ApplicationListener<?> listener : getApplicationListeners(event, type)) {
+            final long submitted = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    handoffs.increment();
+                    handoffNanos.add(System.nanoTime() - submitted);
+                    invokeListener(listener, event);
+                });
+            } catch (final RejectedExecutionException ex) {
+                rejections.increment();
+                if (event instanceof DomainEvent.Message) {
+                    LOG.debug("Handoff queue full, leaving event {} to the outbox relay",
+                        ((DomainEvent.Message) event).id());
+                } else {
+                    invokeListener(listener, event);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("eventing.handoff.queue.depth", executor, e -> e.getQueue().size())
+            .description("application events waiting for a handoff thread")
+            .register(registry);
+        Gauge.builder("eventing.handoff.active", executor, ThreadPoolExecutor::getActiveCount)
+            .register(registry);
+        FunctionCounter.builder("eventing.handoff.rejections", rejections, LongAdder::sum)
+            .description("application events rejected because the handoff queue was full")
+            .register(registry);
+        FunctionTimer.builder("eventing.handoff.latency", this, m -> m.handoffs.sum(), m -> m.handoffNanos.sum(),
+            TimeUnit.NANOSECONDS)
+            .description("time application events waited in the handoff queue")
+            .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
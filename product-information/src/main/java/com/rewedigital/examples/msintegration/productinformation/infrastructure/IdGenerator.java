@@ -0,0 +1,9 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+/**
+ * Source of identifiers for new entities and events.
+ */
+public interface IdGenerator {
+
+    String nextId();
+}
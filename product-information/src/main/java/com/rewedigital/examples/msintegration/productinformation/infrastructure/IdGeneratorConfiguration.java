@@ -0,0 +1,21 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "ids.generator", havingValue = "time-ordered", matchIfMissing = true)
+    public IdGenerator timeOrderedIdGenerator() {
+        return new TimeOrderedIdGenerator();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ids.generator", havingValue = "random")
+    public IdGenerator randomUuidGenerator() {
+        return new RandomUuidGenerator();
+    }
+}
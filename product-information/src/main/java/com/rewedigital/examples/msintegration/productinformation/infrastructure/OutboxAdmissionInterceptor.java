@@ -0,0 +1,68 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.OutboxAdmission;
+
+/**
+ * Applies the {@link OutboxAdmission} to every request that writes, reads pass unhindered. A delayed write sleeps on
+ * its servlet thread, so only a limited number of writes are delayed at a time and the others are rejected, which
+ * leaves the remaining threads to the reads.
+ */
+@Component
+public class OutboxAdmissionInterceptor extends HandlerInterceptorAdapter {
+
+    private final OutboxAdmission admission;
+    private final Semaphore delayed;
+
+    @Inject
+    public OutboxAdmissionInterceptor(final OutboxAdmission admission,
+        @Value("${eventing.admission.delay.concurrency.max}") final int maxDelayed) {
+        this.admission = Objects.requireNonNull(admission);
+        this.delayed = new Semaphore(maxDelayed);
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+        final Object handler) throws InterruptedException {
+        final HttpMethod method = HttpMethod.resolve(request.getMethod());
+        if (method == null || method == HttpMethod.GET || method == HttpMethod.HEAD
+            || method == HttpMethod.OPTIONS) {
+            return true;
+        }
+        if (admission.rejects()) {
+            return reject(response);
+        }
+        final long delayMs = admission.delayMs();
+        if (delayMs <= 0) {
+            return true;
+        }
+        if (!delayed.tryAcquire()) {
+            return reject(response);
+        }
+        try {
+            Thread.sleep(delayMs);
+        } finally {
+            delayed.release();
+        }
+        return true;
+    }
+
+    private boolean reject(final HttpServletResponse response) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs, as used before ids became time ordered.
+ */
+public class RandomUuidGenerator implements IdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
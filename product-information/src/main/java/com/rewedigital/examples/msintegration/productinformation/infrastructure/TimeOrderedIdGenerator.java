@@ -0,0 +1,69 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates UUIDv7 style ids: 48 bits of milliseconds since the epoch, a 12 bit counter within the millisecond and
+ * 62 random bits. Ids of one generator are strictly increasing, also in their string form, so new rows are appended
+ * at the end of a primary key index instead of being scattered across it. If more than 4096 ids are requested
+ * within a millisecond, the counter spills over into the timestamp, which then runs slightly ahead of the clock.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int COUNTER_BITS = 12;
+
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String nextId() {
+        final long timeAndCounter = nextTimeAndCounter();
+        final long mostSignificant = (timeAndCounter >>> COUNTER_BITS) << 16 // unix_ts_ms
+            | 0x7000L // version
+            | (timeAndCounter & 0xfffL); // counter
+        final long leastSignificant = ThreadLocalRandom.current().nextLong() >>> 2 | 0x8000000000000000L; // variant
+        return format(mostSignificant, leastSignificant);
+    }
+
+    private long nextTimeAndCounter() {
+        final long now = clock.getAsLong() << COUNTER_BITS;
+        while (true) {
+            final long previous = last.get();
+            final long next = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static String format(final long mostSignificant, final long leastSignificant) {
+        final char[] chars = new char[36];
+        hex(chars, 0, mostSignificant >>> 32, 8);
+        chars[8] = '-';
+        hex(chars, 9, mostSignificant >>> 16, 4);
+        chars[13] = '-';
+        hex(chars, 14, mostSignificant, 4);
+        chars[18] = '-';
+        hex(chars, 19, leastSignificant >>> 48, 4);
+        chars[23] = '-';
+        hex(chars, 24, leastSignificant, 12);
+        return new String(chars);
+    }
+
+    private static void hex(final char[] chars, final int offset, final long value, final int digits) {
+        for (int i = digits - 1, shift = 0; i >= 0; i--, shift += 4) {
+            chars[offset + i] = HEX[(int) (value >>> shift) & 0xf];
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final OutboxAdmissionInterceptor outboxAdmissionInterceptor;
+
+    @Inject
+    public WebConfiguration(final OutboxAdmissionInterceptor outboxAdmissionInterceptor) {
+        this.outboxAdmissionInterceptor = Objects.requireNonNull(outboxAdmissionInterceptor);
+    }
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        // products are the only resource whose writes go through the outbox
+        registry.addInterceptor(outboxAdmissionInterceptor).addPathPatterns("/products", "/products/**");
+    }
+}
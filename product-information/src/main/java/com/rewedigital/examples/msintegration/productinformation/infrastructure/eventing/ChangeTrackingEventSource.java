@@ -0,0 +1,15 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing;
+
+import java.util.Map;
+
+/**
+ * An event source that knows which of its attributes changed since it was loaded, so that its updates can be
+ * published as deltas.
+ */
+public interface ChangeTrackingEventSource extends EventSource {
+
+    /**
+     * @return the changed attributes by name, <code>null</code> if the entity was not loaded from the database
+     */
+    Map<String, Object> changedAttributes();
+}
@@ -13,7 +13,13 @@ public class EventPublishingEntityListener {
 
     @PreUpdate
     public void onUpdate(EventSource entity) {
-        publishEvent(entity, "updated");
+        if (entity instanceof ChangeTrackingEventSource) {
+            // the version is incremented after this callback
+            EventPublishingEntityListenerAdapter.lookup().publishChanges(entity, entity.getVersion(),
+                ((ChangeTrackingEventSource) entity).changedAttributes());
+        } else {
+            publishEvent(entity, "updated");
+        }
     }
 
     @PreRemove
@@ -0,0 +1,49 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Serializes the relays of this instance per bucket, as {@link PublishedVersions} requires per key. A relay holds the
+ * locks of the buckets it relays from checking versions until the transaction storing the new ones has completed.
+ * The workers of the {@link OutboxRelayEngine} own disjoint ranges and the {@link SnapshotRelay} waits for its locks
+ * in ascending order as well, all other relays only take buckets that are free and leave the rest in the outbox, so
+ * no two relays wait for each other in a cycle.
+ */
+@Component
+public class BucketLocks {
+
+    private final Lock[] locks = new Lock[DomainEvent.BUCKETS];
+
+    public BucketLocks() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    void lock(final BucketRange buckets) {
+        for (int bucket = buckets.from(); bucket < buckets.to(); bucket++) {
+            locks[bucket].lock();
+        }
+    }
+
+    void unlock(final BucketRange buckets) {
+        for (int bucket = buckets.from(); bucket < buckets.to(); bucket++) {
+            locks[bucket].unlock();
+        }
+    }
+
+    void lock(final int bucket) {
+        locks[bucket].lock();
+    }
+
+    boolean tryLock(final int bucket) {
+        return locks[bucket].tryLock();
+    }
+
+    void unlock(final int bucket) {
+        locks[bucket].unlock();
+    }
+}
@@ -0,0 +1,54 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A contiguous range <code>[from, to)</code> of {@link DomainEvent#BUCKETS key-hash buckets}.
+ */
+public final class BucketRange {
+
+    private final int from;
+    private final int to;
+
+    BucketRange(final int from, final int to) {
+        if (from < 0 || to > DomainEvent.BUCKETS || from >= to) {
+            throw new IllegalArgumentException("invalid bucket range [" + from + ", " + to + ")");
+        }
+        this.from = from;
+        this.to = to;
+    }
+
+    static BucketRange all() {
+        return new BucketRange(0, DomainEvent.BUCKETS);
+    }
+
+    /**
+     * Splits all buckets into at most <code>parts</code> ranges of (almost) equal size.
+     */
+    static List<BucketRange> split(final int parts) {
+        final int count = Math.max(1, Math.min(parts, DomainEvent.BUCKETS));
+        final List<BucketRange> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new BucketRange(i * DomainEvent.BUCKETS / count, (i + 1) * DomainEvent.BUCKETS / count));
+        }
+        return result;
+    }
+
+    int from() {
+        return from;
+    }
+
+    int to() {
+        return to;
+    }
+
+    boolean contains(final int bucket) {
+        return bucket >= from && bucket < to;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + ")";
+    }
+}
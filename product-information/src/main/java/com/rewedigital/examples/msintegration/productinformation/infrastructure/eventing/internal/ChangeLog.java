@@ -0,0 +1,136 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads the {@link ChangeLogEntry change log} in sequence order. Sequences are assigned on insert but become visible
+ * on commit, so a reader may see a sequence before a lower one of a transaction that is still running. A page
+ * therefore ends before a gap in the sequence until the gap has been seen for the grace period, then it is taken for
+ * a rolled back transaction. The time of the entries can not tell, it is taken before the transaction commits. Gaps
+ * below entries older than the retention are pruned entries, or no transaction runs that long, and are skipped.
+ *
+ * Entries are pruned once they are older than the retention and a newer entry of the same key exists, the latest
+ * change of every key stays. Readers that fell behind the retention still learn about every changed key.
+ */
+@Component
+public class ChangeLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLog.class);
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final long graceMs;
+    private final long retentionMs;
+    // missing sequence -> when a reader saw it missing first
+    private final ConcurrentMap<Long, Long> gapsSeen = new ConcurrentHashMap<>();
+
+    @Inject
+    public ChangeLog(final EntityManager entityManager, final JdbcTemplate jdbcTemplate,
+        @Value("${eventing.changelog.grace.ms}") final long graceMs,
+        @Value("${eventing.changelog.retention.ms}") final long retentionMs) {
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.graceMs = graceMs;
+        this.retentionMs = retentionMs;
+    }
+
+    /**
+     * @return the highest sequence written so far, <code>0</code> for an empty log
+     */
+    public long head() {
+        final Long head = jdbcTemplate.queryForObject("SELECT MAX(sequence) FROM CHANGE_LOG_ENTRY", Long.class);
+        return head == null ? 0 : head;
+    }
+
+    /**
+     * Reads the entries of the given aggregate after the given sequence. The cursor of the page moves past entries
+     * of other aggregates as well.
+     */
+    @Transactional(readOnly = true)
+    public Page read(final String aggregateName, final long after, final int limit) {
+        final List<ChangeLogEntry> entries = entityManager.createQuery(
+            "SELECT e FROM ChangeLogEntry e WHERE e.sequence > :after ORDER BY e.sequence", ChangeLogEntry.class)
+            .setParameter("after", after)
+            .setMaxResults(limit)
+            .getResultList();
+
+        final long now = System.currentTimeMillis();
+        final List<ChangeLogEntry> result = new ArrayList<>(entries.size());
+        long cursor = after;
+        long previous = after;
+        boolean held = false;
+        for (final ChangeLogEntry entry : entries) {
+            // gaps after the first open one are looked at too, so that their grace periods run at the same time
+            held |= entry.getSequence() != previous + 1 && !settled(previous + 1, entry, now);
+            previous = entry.getSequence();
+            if (held) {
+                continue;
+            }
+            cursor = entry.getSequence();
+            if (aggregateName.equals(entry.getAggregateName())) {
+                result.add(entry);
+            }
+        }
+        entries.forEach(entityManager::detach);
+        return new Page(result, cursor);
+    }
+
+    private boolean settled(final long missing, final ChangeLogEntry next, final long now) {
+        if (next.getTime().toInstant().toEpochMilli() < now - retentionMs) {
+            return true;
+        }
+        return gapsSeen.computeIfAbsent(missing, sequence -> now) <= now - graceMs;
+    }
+
+    @Scheduled(fixedDelayString = "${eventing.changelog.prune.ms}")
+    public void prune() {
+        final long expired = System.currentTimeMillis() - retentionMs;
+        gapsSeen.values().removeIf(seen -> seen < expired);
+        try {
+            final int pruned = jdbcTemplate.update("DELETE FROM CHANGE_LOG_ENTRY e WHERE e.time < ? AND EXISTS ("
+                    + "SELECT 1 FROM CHANGE_LOG_ENTRY n WHERE n.aggregate_name = e.aggregate_name AND n.key = e.key "
+                    + "AND n.sequence > e.sequence)",
+                new Timestamp(expired));
+            LOG.debug("Pruned {} change log entries", pruned);
+        } catch (final RuntimeException ex) {
+            LOG.warn("Could not prune change log due to {}", ex.getMessage());
+        }
+    }
+
+    public static class Page {
+        private final List<ChangeLogEntry> entries;
+        private final long cursor;
+
+        private Page(final List<ChangeLogEntry> entries, final long cursor) {
+            this.entries = entries;
+            this.cursor = cursor;
+        }
+
+        public List<ChangeLogEntry> entries() {
+            return entries;
+        }
+
+        /**
+         * @return the sequence to continue after, the one passed in if the page is empty
+         */
+        public long cursor() {
+            return cursor;
+        }
+    }
+}
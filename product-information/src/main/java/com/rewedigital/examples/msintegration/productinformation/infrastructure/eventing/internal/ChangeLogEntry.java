@@ -0,0 +1,82 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.time.ZonedDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Records that an aggregate changed, written in the same transaction as the change and its {@link DomainEvent}.
+ * Unlike the outbox the log is kept after relaying, see {@link ChangeLog}.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_change_log_entry_sequence", columnList = "sequence"),
+    @Index(name = "idx_change_log_entry_key", columnList = "aggregateName, key")})
+public class ChangeLogEntry {
+
+    // the id of the domain event
+    @Id
+    private String id;
+
+    // assigned by the database on insert, readers follow the log by it
+    @Column(columnDefinition = "BIGINT AUTO_INCREMENT", insertable = false, updatable = false)
+    private Long sequence;
+
+    private String aggregateName;
+
+    private String key;
+
+    private Long version;
+
+    private String type;
+
+    @Convert(converter = ZonedDateTimeConverter.class)
+    private ZonedDateTime time;
+
+    protected ChangeLogEntry() {
+    }
+
+    static ChangeLogEntry of(final DomainEvent event) {
+        final ChangeLogEntry entry = new ChangeLogEntry();
+        entry.id = event.getId();
+        entry.aggregateName = event.getAggregateName();
+        entry.key = event.getKey();
+        entry.version = event.getVersion();
+        entry.type = event.getType();
+        entry.time = event.getTime();
+        return entry;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public String getAggregateName() {
+        return aggregateName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public ZonedDateTime getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,179 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fast path for freshly committed events: the event built by the writing transaction is queued in memory and
+ * published by a single writer thread right away, the outbox row is only claimed and deleted, not read. Events that
+ * do not fit into the queue, could not be published or were lost with the process stay in the outbox and are picked
+ * up by the {@link OutboxRelayEngine}, so are events of buckets a worker is relaying at the moment.
+ */
+@Component
+public class DirectEventRelay implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectEventRelay.class);
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final OutboxBatchRelay batchRelay;
+    private final OutboxClaims outboxClaims;
+    private final BucketLocks bucketLocks;
+    private final RelayLeases relayLeases;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final BlockingQueue<DomainEvent> queue;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    @Inject
+    public DirectEventRelay(final OutboxBatchRelay batchRelay, final OutboxClaims outboxClaims,
+        final BucketLocks bucketLocks, final RelayLeases relayLeases,
+        final PlatformTransactionManager transactionManager,
+        @Value("${eventing.relay.direct.enabled}") final boolean enabled,
+        @Value("${eventing.relay.direct.queue.capacity}") final int queueCapacity,
+        @Value("${eventing.relay.direct.batch.max}") final int maxBatchSize) {
+        this.batchRelay = Objects.requireNonNull(batchRelay);
+        this.outboxClaims = Objects.requireNonNull(outboxClaims);
+        this.bucketLocks = Objects.requireNonNull(bucketLocks);
+        this.relayLeases = Objects.requireNonNull(relayLeases);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Queues a committed event for publishing.
+     *
+     * @return <code>false</code> if the event was not accepted and has to take the regular path
+     */
+    public boolean offer(final DomainEvent event) {
+        return running && queue.offer(event);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "outbox-direct-relay");
+        writer.setDaemon(true);
+        writer.start();
+        LOG.info("Started direct event relay");
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer = null;
+        // whatever is still queued is in the outbox as well
+        queue.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void stop(final Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private void writeLoop() {
+        final List<DomainEvent> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                final DomainEvent first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                relay(batch);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final RuntimeException ex) {
+                LOG.error("Error relaying {} events directly, leaving them to the outbox relay", batch.size(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Publishes the given events unless a newer version of their key was published already, then removes the
+     * published and the outdated events from the outbox with a single statement, see {@link OutboxBatchRelay}. Only
+     * events of buckets this instance still owns and no worker is relaying, and whose outbox rows could be claimed are
+     * relayed. The others are left to the outbox relay, possibly of another instance, or were relayed already.
+     */
+    void relay(final List<DomainEvent> events) {
+        final Set<Integer> locked = new HashSet<>();
+        final Set<Integer> busy = new HashSet<>();
+        try {
+            final List<DomainEvent> free = new ArrayList<>(events.size());
+            for (final DomainEvent event : events) {
+                final int bucket = event.getBucket();
+                // the shard of the bucket may have moved to another instance since the event was queued
+                if (!relayLeases.owns(bucket)) {
+                    continue;
+                }
+                if (!locked.contains(bucket) && !busy.contains(bucket)) {
+                    (bucketLocks.tryLock(bucket) ? locked : busy).add(bucket);
+                }
+                if (locked.contains(bucket)) {
+                    free.add(event);
+                }
+            }
+            final Set<String> claimed = new HashSet<>(outboxClaims.claim(idsOf(free)));
+            final List<DomainEvent> relayable = new ArrayList<>(claimed.size());
+            free.stream().filter(event -> claimed.contains(event.getId())).forEach(relayable::add);
+            if (!relayable.isEmpty()) {
+                transactionTemplate.execute(status -> batchRelay.relay(relayable));
+            }
+        } finally {
+            locked.forEach(bucketLocks::unlock);
+        }
+    }
+
+    private static List<String> idsOf(final List<DomainEvent> events) {
+        final List<String> ids = new ArrayList<>(events.size());
+        events.forEach(event -> ids.add(event.getId()));
+        return ids;
+    }
+}
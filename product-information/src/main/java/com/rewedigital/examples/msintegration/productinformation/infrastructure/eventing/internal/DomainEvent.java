@@ -2,16 +2,30 @@ package com.rewedigital.examples.msintegration.productinformation.infrastructure
 
 import java.time.ZonedDateTime;
 
+import javax.persistence.Column;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
+import javax.persistence.Table;
 
 import org.springframework.context.ApplicationEvent;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_domain_event_sequence", columnList = "sequence"),
+    @Index(name = "idx_domain_event_key_version", columnList = "key, version")})
 public class DomainEvent {
 
+    /**
+     * Number of key-hash buckets the outbox is partitioned into. All events of a key share a bucket, so whoever
+     * relays a bucket relays the key in version order.
+     */
+    public static final int BUCKETS = 64;
+
     public static class Message extends ApplicationEvent {
         private static final long serialVersionUID = 1L;
         private final String id;
@@ -29,10 +43,16 @@ public class DomainEvent {
     @Id
     private String id;
 
+    // assigned by the database on insert, gives the relay a monotonic claim order
+    @Column(columnDefinition = "BIGINT AUTO_INCREMENT", insertable = false, updatable = false)
+    private Long sequence;
+
     private Long version;
 
     private String key;
 
+    private int bucket;
+
     @Convert(converter = ZonedDateTimeConverter.class)
     private ZonedDateTime time;
 
@@ -41,10 +61,17 @@ public class DomainEvent {
     @Lob
     private byte[] payload;
 
+    // the codec the payload is stored with, rows written before compression was introduced have none
+    @Enumerated(EnumType.STRING)
+    private PayloadCodec codec;
+
     private String aggregateName;
 
     private Class<?> entityType;
 
+    // epoch millis until which a relay holds the event, see OutboxClaims
+    private Long claimedUntil;
+
     public Message message(final Object source) {
         return new Message(id, source);
     }
@@ -57,6 +84,10 @@ public class DomainEvent {
         this.id = id;
     }
 
+    public Long getSequence() {
+        return sequence;
+    }
+
     public String getKey() {
         return key;
     }
@@ -71,6 +102,15 @@ public class DomainEvent {
 
     public void setKey(final String key) {
         this.key = key;
+        this.bucket = bucketOf(key);
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    static int bucketOf(final String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), BUCKETS);
     }
 
     public ZonedDateTime getTime() {
@@ -97,6 +137,14 @@ public class DomainEvent {
         this.payload = payload;
     }
 
+    public PayloadCodec getCodec() {
+        return codec == null ? PayloadCodec.NONE : codec;
+    }
+
+    public void setCodec(final PayloadCodec codec) {
+        this.codec = codec;
+    }
+
     public Class<?> getEntityType() {
         return entityType;
     }
@@ -113,6 +161,13 @@ public class DomainEvent {
         this.aggregateName = aggregateName;
     }
 
+    /**
+     * A delta carries the changes to the version before it only, see {@link EventPublishingEntityListenerAdapter}.
+     */
+    boolean isDelta() {
+        return type != null && type.endsWith("-patched");
+    }
+
     protected String lastPublishedVersionId() {
         final String entityId = getKey();
         final String aggregateName = getAggregateName();
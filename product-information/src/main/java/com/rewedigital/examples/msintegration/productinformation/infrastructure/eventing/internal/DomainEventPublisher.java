@@ -5,20 +5,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
-import org.springframework.kafka.support.SendResult;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.LockModeType;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 
 @Component
@@ -26,94 +21,107 @@ public class DomainEventPublisher implements ApplicationListener<DomainEvent.Mes
 
     private static final Logger LOG = LoggerFactory.getLogger(DomainEventPublisher.class);
 
-    private final KafkaGateway eventPublisher;
+    private final OutboxBatchRelay batchRelay;
     private final EntityManager entityManager;
-    private final boolean schedulerEnabled;
+    private final OutboxClaims outboxClaims;
+    private final BucketLocks bucketLocks;
+    private final RelayLeases relayLeases;
+    private final OutboxMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean batchEnabled;
 
     @Inject
-    public DomainEventPublisher(final KafkaGateway eventPublisher,
-        final EntityManager entityManager, @Value("${eventing.scheduler.enabled}") boolean schedulerEnabled) {
-        this.eventPublisher = Objects.requireNonNull(eventPublisher);
+    public DomainEventPublisher(final OutboxBatchRelay batchRelay,
+        final EntityManager entityManager, final OutboxClaims outboxClaims,
+        final BucketLocks bucketLocks, final RelayLeases relayLeases, final OutboxMetrics metrics,
+        final PlatformTransactionManager transactionManager,
+        @Value("${eventing.relay.batch.enabled}") final boolean batchEnabled) {
+        this.batchRelay = Objects.requireNonNull(batchRelay);
         this.entityManager = Objects.requireNonNull(entityManager);
-        this.schedulerEnabled = schedulerEnabled;
+        this.outboxClaims = Objects.requireNonNull(outboxClaims);
+        this.bucketLocks = Objects.requireNonNull(bucketLocks);
+        this.relayLeases = Objects.requireNonNull(relayLeases);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchEnabled = batchEnabled;
     }
 
     @Override
-    @Transactional
     public void onApplicationEvent(final DomainEvent.Message event) {
         LOG.info("Received message to publish event for id {}", event.id());
-        DomainEvent domainEvent = findEvent(event.id());
-        if (domainEvent != null) {
-            sendEvent(domainEvent);
-        } else {
-            LOG.warn("Could not publish event with id {} due to: NOT_FOUND", event.id());
+        if (outboxClaims.claim(Collections.singletonList(event.id())).isEmpty()) {
+            LOG.warn("Could not publish event with id {} due to: NOT_FOUND or claimed by another relay", event.id());
+            return;
+        }
+        final DomainEvent domainEvent = entityManager.find(DomainEvent.class, event.id());
+        if (domainEvent == null) {
+            return;
+        }
+        if (!relayLeases.owns(domainEvent.getBucket()) || !bucketLocks.tryLock(domainEvent.getBucket())) {
+            // another instance took the bucket over or a worker is relaying it, either picks the event up
+            outboxClaims.release(Collections.singletonList(event.id()));
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> batchRelay.relay(Collections.singletonList(domainEvent)));
+        } finally {
+            bucketLocks.unlock(domainEvent.getBucket());
         }
     }
 
-    private DomainEvent findEvent(final String eventId) {
-        return entityManager.find(DomainEvent.class, eventId, LockModeType.PESSIMISTIC_WRITE);
+    /**
+     * Claims and relays the next batch of events within the given bucket range that were written after the given
+     * sequence, see {@link OutboxClaims}. The relayed events are deleted, the others released, both in a transaction
+     * of its own after the acks were awaited, see {@link OutboxBatchRelay}. Unless batching is enabled, each event is
+     * relayed on its own.
+     */
+    public RelayedBatch relayBatch(final BucketRange buckets, final long afterSequence, final int batchSize) {
+        final List<DomainEvent> events = outboxClaims.claim(buckets, afterSequence, batchSize);
+        metrics.batchClaimed(events.size(), batchSize);
+        if (!events.isEmpty()) {
+            transactionTemplate.execute(status -> {
+                if (batchEnabled) {
+                    batchRelay.relay(events);
+                } else {
+                    events.forEach(event -> batchRelay.relay(Collections.singletonList(event)));
+                }
+                return null;
+            });
+        }
+        return new RelayedBatch(events.size(), events.stream()
+            .map(DomainEvent::getSequence)
+            .filter(Objects::nonNull)
+            .reduce(afterSequence, Math::max));
     }
 
-    @Scheduled(fixedDelayString = "${eventing.scheduler.frequency.ms}")
-    @Transactional
-    public void processNext() {
-        if (schedulerEnabled) {
-            findUnprocessedEvents(20).forEach(this::sendEvent);
-        }
+    public RelayedBatch relayBatch(final int batchSize) {
+        return relayBatch(BucketRange.all(), 0, batchSize);
     }
 
-    @SuppressWarnings("unchecked")
     public List<DomainEvent> findUnprocessedEvents(final int batchSize) {
-        return (List<DomainEvent>) entityManager.createNativeQuery(
-            "SELECT * FROM DOMAIN_EVENT WHERE key IN (SELECT key FROM DOMAIN_EVENT ORDER BY time ASC LIMIT ?) ORDER BY version, time ASC LIMIT ? FOR UPDATE",
-            DomainEvent.class).setParameter(1, batchSize).setParameter(2, batchSize).getResultList();
+        return findUnprocessedEvents(BucketRange.all(), 0, batchSize);
     }
 
-    private void sendEvent(final DomainEvent event) {
-        if (event == null) {
-            return;
-        }
-
-        obtainLastPublishedVersion(event.lastPublishedVersionId())
-            .ifPresent(v -> publishIfNotOutdated(event, v));
+    List<DomainEvent> findUnprocessedEvents(final BucketRange buckets, final long afterSequence,
+        final int batchSize) {
+        return outboxClaims.findUnclaimed(buckets, afterSequence, batchSize);
     }
 
-    private void publishIfNotOutdated(final DomainEvent event, LastPublishedVersion v) {
-        try {
-            if (v.getVersion() < event.getVersion()) {
-                publish(event);
-                v.setVersion(event.getVersion());
-                entityManager.merge(v);
-            }
-            entityManager.remove(event);
-        } catch (final Exception ex) {
-            LOG.error("Error publishing event with id [{}] due to {}", event.getId(), ex.getMessage(), ex);
-        }
-    }
+    public static class RelayedBatch {
+        private final int claimed;
+        private final long lastSequence;
 
-    private void publish(final DomainEvent event) throws InterruptedException, ExecutionException, TimeoutException {
-        // need to block here so that following statements are executed inside transaction
-        SendResult<String, String> sendResult = eventPublisher.publish(event).get(1, TimeUnit.SECONDS);
-        LOG.debug("Published event to topic:partition {}:{} at {}", sendResult.getProducerRecord().topic(),
-            sendResult.getProducerRecord().partition(), sendResult.getProducerRecord().timestamp());
-    }
+        private RelayedBatch(final int claimed, final long lastSequence) {
+            this.claimed = claimed;
+            this.lastSequence = lastSequence;
+        }
 
-    private Optional<LastPublishedVersion> obtainLastPublishedVersion(final String lastPublishedVersionId) {
-        return Optional.ofNullable(
-            Optional
-                .ofNullable(entityManager.find(LastPublishedVersion.class, lastPublishedVersionId,
-                    LockModeType.PESSIMISTIC_WRITE))
-                .orElseGet(() -> createLastPublishedVersion(lastPublishedVersionId)));
-    }
+        public int claimed() {
+            return claimed;
+        }
 
-    private LastPublishedVersion createLastPublishedVersion(final String lastPublishedVersionId) {
-        try {
-            final LastPublishedVersion v = LastPublishedVersion.of(lastPublishedVersionId);
-            entityManager.persist(v);
-            return v;
-        } catch (final Exception ex) {
-            LOG.error("Error while storing last published version with id {}", lastPublishedVersionId, ex);
-            return null;
+        public long lastSequence() {
+            return lastSequence;
         }
     }
 }
@@ -0,0 +1,72 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes the event envelope sent to Kafka. The metadata fields are streamed with a {@link JsonGenerator}, the
+ * payload was already serialized when the event was stored and is copied into the envelope as is. Compressed
+ * payloads are either decompressed first or, if they are forwarded compressed, written as a base64 string that the
+ * consumer decodes according to the <code>content-encoding</code> header of the record.
+ */
+@Component
+public class EventEnvelopeWriter {
+
+    private static final int ENVELOPE_SIZE_ESTIMATE = 256;
+
+    private final ObjectMapper objectMapper;
+    private final boolean forwardCompressed;
+
+    @Inject
+    public EventEnvelopeWriter(final ObjectMapper objectMapper,
+        @Value("${eventing.topic.payload.forward-compressed}") final boolean forwardCompressed) {
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+        this.forwardCompressed = forwardCompressed;
+    }
+
+    /**
+     * @return the codec the payload of the event is written with, {@link PayloadCodec#NONE} for plain JSON
+     */
+    public PayloadCodec encodingOf(final DomainEvent event) {
+        return forwardCompressed ? event.getCodec() : PayloadCodec.NONE;
+    }
+
+    public byte[] write(final DomainEvent event) throws IOException {
+        final PayloadCodec encoding = encodingOf(event);
+        final byte[] payload = encoding == event.getCodec() || event.getPayload() == null
+            ? event.getPayload()
+            : event.getCodec().decode(event.getPayload());
+        final ByteArrayOutputStream out =
+            new ByteArrayOutputStream((payload == null ? 0 : payload.length) + ENVELOPE_SIZE_ESTIMATE);
+        try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", event.getId());
+            generator.writeStringField("key", event.getKey());
+            generator.writeObjectField("time", event.getTime());
+            generator.writeStringField("type", event.getType());
+            generator.writeObjectField("version", event.getVersion());
+            generator.writeFieldName("payload");
+            if (payload == null || payload.length == 0) {
+                generator.writeNull();
+            } else if (encoding != PayloadCodec.NONE) {
+                generator.writeBinary(payload);
+            } else {
+                // lets the generator write the field separator, then splices in the serialized payload
+                generator.writeRawValue("");
+                generator.flush();
+                out.write(payload);
+            }
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+}
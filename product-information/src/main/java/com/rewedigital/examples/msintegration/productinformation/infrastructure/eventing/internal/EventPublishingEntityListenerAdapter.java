@@ -1,23 +1,33 @@
 package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.IdGenerator;
 import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.EventSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
+import java.sql.Timestamp;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class EventPublishingEntityListenerAdapter implements ApplicationContextAware {
@@ -27,13 +37,40 @@ public class EventPublishingEntityListenerAdapter implements ApplicationContextA
     private final EntityManager eventRepository;
     private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
+    private final DirectEventRelay directEventRelay;
+    private final RelayLeases relayLeases;
+    private final JdbcTemplate jdbcTemplate;
+    private final IdGenerator idGenerator;
+    private final boolean coalescing;
+    private final PayloadCodec payloadCodec;
+    private final int compressionThreshold;
+    private final boolean deltas;
+    private final long snapshotInterval;
+    private final boolean changeLog;
 
     @Autowired
     public EventPublishingEntityListenerAdapter(EntityManager eventRepository, ApplicationEventPublisher eventPublisher,
-        ObjectMapper objectMapper) {
+        ObjectMapper objectMapper, DirectEventRelay directEventRelay, RelayLeases relayLeases,
+        JdbcTemplate jdbcTemplate, IdGenerator idGenerator,
+        @Value("${eventing.outbox.coalescing.enabled}") boolean coalescing,
+        @Value("${eventing.outbox.payload.codec}") PayloadCodec payloadCodec,
+        @Value("${eventing.outbox.payload.compression.threshold.bytes}") int compressionThreshold,
+        @Value("${eventing.outbox.deltas.enabled}") boolean deltas,
+        @Value("${eventing.outbox.deltas.snapshot-interval}") long snapshotInterval,
+        @Value("${eventing.changelog.enabled}") boolean changeLog) {
         this.eventRepository = eventRepository;
         this.eventPublisher = eventPublisher;
         this.objectMapper = objectMapper;
+        this.directEventRelay = directEventRelay;
+        this.relayLeases = relayLeases;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGenerator = idGenerator;
+        this.coalescing = coalescing;
+        this.payloadCodec = payloadCodec;
+        this.compressionThreshold = compressionThreshold;
+        this.deltas = deltas;
+        this.snapshotInterval = snapshotInterval;
+        this.changeLog = changeLog;
     }
 
     public static EventPublishingEntityListenerAdapter lookup() {
@@ -42,36 +79,174 @@ public class EventPublishingEntityListenerAdapter implements ApplicationContextA
 
     @Transactional
     public void publishEvent(EventSource entity, String action) {
-        final DomainEvent event =
-            toEvent(entity, entity.getAggregateName() + "-" + action, objectMapper);
-        eventRepository.persist(event);
-
+        final long version = entity.getVersion() == null ? 0 : entity.getVersion();
+        // the deletion supersedes the last version of the entity, otherwise it would be taken as outdated
+        final DomainEvent event = toEvent(entity, entity.getAggregateName() + "-" + action,
+            "deleted".equals(action) ? version + 1 : version, entity);
+        store(event, action, false);
         fireEvent(entity, event, action);
     }
 
+    /**
+     * Publishes an update of the entity from the given base version to the next one. In delta mode the event only
+     * carries the changed attributes, every n-th version still carries the complete entity so that consumers who
+     * missed a delta catch up.
+     *
+     * @param changes the changed attributes by name, <code>null</code> if unknown
+     */
+    @Transactional
+    public void publishChanges(EventSource entity, long baseVersion, Map<String, ?> changes) {
+        final long version = baseVersion + 1;
+        final boolean delta = deltas && changes != null && version % snapshotInterval != 0;
+        final DomainEvent event = delta
+            ? toEvent(entity, entity.getAggregateName() + "-patched", version,
+                new Delta(entity.getId(), version, baseVersion, changes))
+            : toEvent(entity, entity.getAggregateName() + "-updated", version, entity);
+        store(event, "updated", delta);
+        fireEvent(entity, event, "updated");
+    }
+
+    /**
+     * Builds the complete event of the entity in its current version under the given event id, for a relay that can
+     * not publish a delta as its base version was not published.
+     */
+    DomainEvent completeEvent(EventSource entity, String eventId) {
+        final DomainEvent event = toEvent(entity, entity.getAggregateName() + "-updated", entity.getVersion(), entity);
+        event.setId(eventId);
+        return event;
+    }
+
+    private void store(final DomainEvent event, final String action, final boolean delta) {
+        // a new entity has no pending events to replace, a delta builds on the pending ones
+        if (!coalescing || "created".equals(action) || delta) {
+            eventRepository.persist(event);
+        } else {
+            final List<String> superseded = supersedeOwn(event);
+            if (deltas) {
+                // there may be several pending deltas for the key, they are all superseded by the complete entity
+                removePending(event, superseded);
+                eventRepository.persist(event);
+            } else if (!replacePending(event, superseded)) {
+                eventRepository.persist(event);
+            }
+        }
+        if (changeLog) {
+            eventRepository.persist(ChangeLogEntry.of(event));
+        }
+    }
+
+    /**
+     * Removes the events of the same key that the current transaction wrote before. The JDBC statements below can
+     * not be relied on for them, they do not see events that were not flushed yet.
+     *
+     * @return the ids of the removed events
+     */
+    private List<String> supersedeOwn(final DomainEvent event) {
+        final List<String> superseded = new ArrayList<>();
+        final Iterator<DomainEvent> own = pendingEvents().iterator();
+        while (own.hasNext()) {
+            final DomainEvent earlier = own.next();
+            if (earlier.getKey().equals(event.getKey()) && earlier.getAggregateName().equals(event.getAggregateName())
+                && eventRepository.contains(earlier)) {
+                eventRepository.remove(earlier);
+                superseded.add(earlier.getId());
+                own.remove();
+            }
+        }
+        return superseded;
+    }
+
+    /**
+     * Overwrites the pending outbox row of the same aggregate key with the given event. The row takes the id of the
+     * new event, so a relay whose claim on the replaced event expired deletes nothing when it is done. Runs through
+     * JDBC as it is called while the persistence context is flushed.
+     *
+     * @return <code>false</code> if there is no older pending event for the key
+     */
+    private boolean replacePending(final DomainEvent event, final List<String> superseded) {
+        final List<Object> args = new ArrayList<>(Arrays.asList(event.getId(), event.getVersion(),
+            Timestamp.from(event.getTime().toInstant()), event.getType(), event.getPayload(), event.getCodec().name(),
+            event.getEntityType().getName()));
+        return jdbcTemplate.update("UPDATE DOMAIN_EVENT SET id = ?, version = ?, time = ?, type = ?, payload = ?, "
+            + "codec = ?, entity_type = ?, claimed_until = NULL WHERE " + pending(event, superseded, args),
+            args.toArray()) > 0;
+    }
+
+    private void removePending(final DomainEvent event, final List<String> superseded) {
+        final List<Object> args = new ArrayList<>();
+        jdbcTemplate.update("DELETE FROM DOMAIN_EVENT WHERE " + pending(event, superseded, args), args.toArray());
+    }
+
+    /**
+     * Condition on the older pending events of the key, adding its arguments. Events claimed by a relay are left
+     * alone instead of waited for, the relay publishes them and the newer event follows. The events superseded
+     * within the current transaction are removed through the persistence context already.
+     */
+    private static String pending(final DomainEvent event, final List<String> superseded, final List<Object> args) {
+        args.addAll(Arrays.asList(event.getAggregateName(), event.getKey(), event.getVersion(),
+            System.currentTimeMillis()));
+        args.addAll(superseded);
+        return "aggregate_name = ? AND key = ? AND version < ? AND (claimed_until IS NULL OR claimed_until < ?)"
+            + (superseded.isEmpty() ? "" : " AND id NOT IN (" + String.join(", ",
+                Collections.nCopies(superseded.size(), "?")) + ")");
+    }
+
     private void fireEvent(EventSource entity, DomainEvent event, String action) {
+        pendingEvents().add(event);
+        LOG.debug("Queued {} event for {} with id {}, version {}", action, entity.getClass(), entity.getId(),
+                entity.getVersion());
+    }
+
+    /**
+     * Events written by the current transaction. They are handed off together after commit by a single
+     * synchronization, so bulk writes do not register one synchronization per event.
+     */
+    @SuppressWarnings("unchecked")
+    private List<DomainEvent> pendingEvents() {
+        final List<DomainEvent> bound = (List<DomainEvent>) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            return bound;
+        }
+        final List<DomainEvent> events = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, events);
         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
             @Override
             public void afterCommit() {
-                eventPublisher.publishEvent(event.message(EventPublishingEntityListenerAdapter.this));
-                LOG.debug("Published {} event for {} with id {}, version {}", action, entity.getClass(), entity.getId(),
-                        entity.getVersion());
+                events.forEach(EventPublishingEntityListenerAdapter.this::handOff);
+                LOG.debug("Handed off {} events", events.size());
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EventPublishingEntityListenerAdapter.this);
             }
         });
+        return events;
+    }
+
+    private void handOff(final DomainEvent event) {
+        if (!relayLeases.owns(event.getBucket())) {
+            // the bucket is relayed by another instance, which picks the event up from the outbox
+            return;
+        }
+        // the direct relay already has the event at hand, otherwise the publisher reloads it by id
+        if (!directEventRelay.offer(event)) {
+            eventPublisher.publishEvent(event.message(this));
+        }
     }
 
-    private DomainEvent toEvent(final EventSource entity, final String eventType,
-        final ObjectMapper objectMapper) {
+    private DomainEvent toEvent(final EventSource entity, final String eventType, final long version,
+        final Object payload) {
         try {
             final DomainEvent result = new DomainEvent();
-            result.setId(UUID.randomUUID().toString());
+            result.setId(idGenerator.nextId());
             result.setKey(entity.getId());
             result.setTime(ZonedDateTime.now(ZoneOffset.UTC));
-            result.setVersion(entity.getVersion() == null ? 0 : entity.getVersion());
+            result.setVersion(version);
             result.setEntityType(entity.getClass());
             result.setType(eventType);
             result.setAggregateName(entity.getAggregateName());
-            result.setPayload(objectMapper.writeValueAsBytes(entity));
+            setPayload(result, objectMapper.writeValueAsBytes(payload));
             return result;
         } catch (final Exception ex) {
             LOG.error("Could not create domain event", ex);
@@ -79,6 +254,53 @@ public class EventPublishingEntityListenerAdapter implements ApplicationContextA
         }
     }
 
+    /**
+     * Compresses the payload with the configured codec unless it is too small to be worth it.
+     */
+    private void setPayload(final DomainEvent event, final byte[] payload) {
+        if (payload.length < compressionThreshold) {
+            event.setPayload(payload);
+            event.setCodec(PayloadCodec.NONE);
+        } else {
+            event.setPayload(payloadCodec.encode(payload));
+            event.setCodec(payloadCodec);
+        }
+    }
+
+    /**
+     * Payload of a delta event, applies to the entity in its base version only.
+     */
+    @JsonPropertyOrder({"id", "version", "baseVersion", "changes"})
+    static class Delta {
+        private final String id;
+        private final long version;
+        private final long baseVersion;
+        private final Map<String, ?> changes;
+
+        Delta(final String id, final long version, final long baseVersion, final Map<String, ?> changes) {
+            this.id = id;
+            this.version = version;
+            this.baseVersion = baseVersion;
+            this.changes = changes;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getBaseVersion() {
+            return baseVersion;
+        }
+
+        public Map<String, ?> getChanges() {
+            return changes;
+        }
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext context) throws BeansException {
         applicationContext = context;
@@ -0,0 +1,62 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * An event handed to the producer whose ack has not been awaited yet.
+ */
+class InFlightEvent {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InFlightEvent.class);
+
+    private final DomainEvent event;
+    private final ListenableFuture<SendResult<String, byte[]>> result;
+
+    InFlightEvent(final DomainEvent event, final ListenableFuture<SendResult<String, byte[]>> result) {
+        this.event = event;
+        this.result = result;
+    }
+
+    /**
+     * Pairs the events with their results, both in the same order.
+     */
+    static List<InFlightEvent> of(final List<DomainEvent> events,
+        final List<ListenableFuture<SendResult<String, byte[]>>> results) {
+        final List<InFlightEvent> inFlight = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            inFlight.add(new InFlightEvent(events.get(i), results.get(i)));
+        }
+        return inFlight;
+    }
+
+    DomainEvent event() {
+        return event;
+    }
+
+    /**
+     * @return <code>true</code> if the event was acknowledged before the deadline
+     */
+    boolean await(final long deadline) {
+        try {
+            final SendResult<String, byte[]> sendResult =
+                result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            LOG.debug("Published event to topic:partition {}:{} at {}", sendResult.getProducerRecord().topic(),
+                sendResult.getProducerRecord().partition(), sendResult.getProducerRecord().timestamp());
+            return true;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while publishing event with id [{}]", event.getId());
+            return false;
+        } catch (final Exception ex) {
+            LOG.error("Error publishing event with id [{}] due to {}", event.getId(), ex.getMessage(), ex);
+            return false;
+        }
+    }
+}
@@ -1,62 +1,153 @@
 package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.inject.Inject;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 import org.springframework.util.concurrent.ListenableFuture;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 @Component
 public class KafkaGateway {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaGateway.class);
+    static final String CONTENT_ENCODING = "content-encoding";
+    static final String VERSION = "version";
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
-    private final String topic;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> snapshotTemplate;
+    private final EventEnvelopeWriter envelopeWriter;
+    private final OutboxMetrics metrics;
+    private final TopicRouting topicRouting;
+    private final boolean compacted;
 
-    // FIXME topic name
     @Inject
-    public KafkaGateway(final KafkaTemplate<String, String> kafkaTemplate, final ObjectMapper objectMapper,
-        @Value("${eventing.topic.product}") final String topic) {
+    public KafkaGateway(@Qualifier("kafkaTemplate") final KafkaTemplate<String, byte[]> kafkaTemplate,
+        @Qualifier("snapshotKafkaTemplate") final KafkaTemplate<String, byte[]> snapshotTemplate,
+        final EventEnvelopeWriter envelopeWriter, final OutboxMetrics metrics,
+        final TopicRouting topicRouting, @Value("${eventing.topic.compacted}") final boolean compacted) {
         this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = objectMapper;
-        this.topic = topic;
+        this.snapshotTemplate = snapshotTemplate;
+        this.envelopeWriter = envelopeWriter;
+        this.metrics = metrics;
+        this.topicRouting = topicRouting;
+        this.compacted = compacted;
+    }
+
+    public ListenableFuture<SendResult<String, byte[]>> publish(final DomainEvent event) {
+        if (kafkaTemplate.isTransactional()) {
+            return kafkaTemplate.executeInTransaction(operations -> send(operations, event));
+        }
+        return send(kafkaTemplate, event);
+    }
+
+    /**
+     * Publishes the events in the given order. With a transactional producer they are sent as one Kafka transaction,
+     * which is committed before this method returns: consumers reading committed records see all of them or none.
+     *
+     * @return the result of every event, in the order of the events
+     */
+    public List<ListenableFuture<SendResult<String, byte[]>>> publishAll(final List<DomainEvent> events) {
+        final List<ListenableFuture<SendResult<String, byte[]>>> results = new ArrayList<>(events.size());
+        if (!kafkaTemplate.isTransactional()) {
+            events.forEach(event -> results.add(sendOrFail(event)));
+            return results;
+        }
+        if (events.isEmpty()) {
+            return results;
+        }
+        try {
+            return kafkaTemplate.executeInTransaction(operations -> {
+                events.forEach(event -> results.add(send(operations, event)));
+                return results;
+            });
+        } catch (final RuntimeException ex) {
+            LOGGER.error("Kafka transaction of {} events was aborted", events.size(), ex);
+            final SettableListenableFuture<SendResult<String, byte[]>> aborted = new SettableListenableFuture<>();
+            aborted.setException(ex);
+            return Collections.nCopies(events.size(), aborted);
+        }
+    }
+
+    private ListenableFuture<SendResult<String, byte[]>> sendOrFail(final DomainEvent event) {
+        try {
+            return send(kafkaTemplate, event);
+        } catch (final RuntimeException ex) {
+            final SettableListenableFuture<SendResult<String, byte[]>> failed = new SettableListenableFuture<>();
+            failed.setException(ex);
+            return failed;
+        }
+    }
+
+    private ListenableFuture<SendResult<String, byte[]>> send(final KafkaOperations<String, byte[]> operations,
+        final DomainEvent event) {
+        LOGGER.info("publishing event {} to topic {}", event.getId(), topicRouting.topicOf(event.getAggregateName()));
+        final long start = System.nanoTime();
+        final ListenableFuture<SendResult<String, byte[]>> result = operations.send(toRecord(event));
+        result.addCallback(sent -> metrics.acknowledged(System.nanoTime() - start, true),
+            ex -> metrics.acknowledged(System.nanoTime() - start, false));
+        return result;
+    }
+
+    /**
+     * Publishes an event that does not come from the outbox, through a producer that trades latency for throughput
+     * and does not compete with the relays for buffer space.
+     */
+    public ListenableFuture<SendResult<String, byte[]>> publishSnapshot(final DomainEvent event) {
+        LOGGER.debug("publishing snapshot event {} to topic {}", event.getId(),
+            topicRouting.topicOf(event.getAggregateName()));
+        return snapshotTemplate.send(toRecord(event));
+    }
+
+    /**
+     * Sends the snapshot events handed over so far right away instead of waiting for their batches to fill.
+     */
+    public void flushSnapshots() {
+        snapshotTemplate.flush();
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(final DomainEvent event) {
+        final String topic = topicRouting.topicOf(event.getAggregateName());
+        final ProducerRecord<String, byte[]> record = isTombstone(event)
+            ? new ProducerRecord<>(topic, event.getKey(), null)
+            : new ProducerRecord<>(topic, event.getKey(), toEventMessage(event));
+        final PayloadCodec encoding = envelopeWriter.encodingOf(event);
+        if (record.value() == null) {
+            record.headers().add(VERSION, String.valueOf(event.getVersion()).getBytes(StandardCharsets.UTF_8));
+        } else if (encoding != PayloadCodec.NONE) {
+            record.headers().add(CONTENT_ENCODING, encoding.contentEncoding().getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
     }
 
-    public ListenableFuture<SendResult<String, String>> publish(final DomainEvent event) {
-        LOGGER.info("publishing event {} to topic {}", event.getId(), topic);
-        return kafkaTemplate.send(topic, event.getKey(), toEventMessage(event));
+    /**
+     * On a compacted topic deletions are published as tombstones, so that compaction eventually drops every record
+     * of the key. The version goes into a header as there is no envelope.
+     */
+    private boolean isTombstone(final DomainEvent event) {
+        return compacted && event.getType().endsWith("-deleted");
     }
 
-    private String toEventMessage(final DomainEvent event) {
+    private byte[] toEventMessage(final DomainEvent event) {
         try {
-            final Map<String, Object> message = new HashMap<String, Object>();
-            message.put("id", event.getId());
-            message.put("key", event.getKey());
-            message.put("time", event.getTime());
-            message.put("type", event.getType());
-            message.put("version", event.getVersion());
-            message.put("payload", objectMapper.readValue(event.getPayload(), event.getEntityType()));
-            return objectMapper.writeValueAsString(message);
-        } catch (final JsonProcessingException e) {
+            return envelopeWriter.write(event);
+        } catch (final IOException e) {
             LOGGER.error("Could not serialize event with id {}", event.getId(), e);
-            // FIXME error handling?
-            return "";
-        } catch (IOException e) {
-            LOGGER.error("Could not read payload for event with id {}", event.getId(), e);
-            return "";
+            throw new UncheckedIOException(e);
         }
     }
 }
@@ -1,10 +1,11 @@
 package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
 
 import org.apache.kafka.clients.admin.AdminClientConfig;
-import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
@@ -19,19 +20,63 @@ import java.util.Map;
 public class KafkaProducerConfiguration {
 
     private final String servers;
+    private final int snapshotLingerMs;
+    private final int snapshotBatchSize;
+    private final boolean transactional;
+    private final String transactionIdPrefix;
+    private final String instanceId;
 
-    public KafkaProducerConfiguration(@Value("${eventing.brokers}") final String servers) {
+    public KafkaProducerConfiguration(@Value("${eventing.brokers}") final String servers,
+            @Value("${eventing.topic.compacted}") final boolean compacted,
+            @Value("${eventing.outbox.deltas.enabled}") final boolean deltas,
+            @Value("${eventing.snapshot.linger.ms}") final int snapshotLingerMs,
+            @Value("${eventing.snapshot.batch.bytes}") final int snapshotBatchSize,
+            @Value("${eventing.relay.transactional.enabled}") final boolean transactional,
+            @Value("${eventing.relay.transactional.id.prefix}") final String transactionIdPrefix,
+            @Value("${eventing.relay.transactional.instance-id}") final String instanceId) {
+        if (compacted && deltas) {
+            // compaction may leave a delta as the only record of a key, which is useless without its predecessors
+            throw new IllegalStateException("delta events can not be published to a compacted topic");
+        }
+        if (transactional && instanceId.trim().isEmpty()) {
+            throw new IllegalStateException("a transactional relay needs an instance id");
+        }
         this.servers = servers;
+        this.snapshotLingerMs = snapshotLingerMs;
+        this.snapshotBatchSize = snapshotBatchSize;
+        this.transactional = transactional;
+        this.transactionIdPrefix = transactionIdPrefix;
+        this.instanceId = instanceId;
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /**
+     * A producer of its own for snapshots, it waits to fill large compressed batches.
+     */
     @Bean
-    public NewTopic products() {
-        return new NewTopic("products", 4, (short) 1);
+    public KafkaTemplate<String, byte[]> snapshotKafkaTemplate() {
+        final Map<String, Object> props = producerConfigs();
+        props.put(ProducerConfig.LINGER_MS_CONFIG, snapshotLingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, snapshotBatchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        // full batches take longer than the short timeout of the relay producer
+        props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30000);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "eventing.topic")
+    public TopicRouting topicRouting() {
+        return new TopicRouting();
+    }
+
+    @Bean
+    public static TopicRegistrar topicRegistrar() {
+        return new TopicRegistrar();
     }
 
     @Bean
@@ -42,8 +87,27 @@ public class KafkaProducerConfiguration {
         return new KafkaAdmin(configs);
     }
 
-    private ProducerFactory<String, String> producerFactory() {
-        return new DefaultKafkaProducerFactory<>(producerConfigs());
+    /**
+     * In transactional mode the relay producer is idempotent and every relay batch is sent as one transaction, see
+     * {@link KafkaGateway#publishAll}. Consumers have to read committed records only.
+     */
+    private ProducerFactory<String, byte[]> producerFactory() {
+        final Map<String, Object> props = producerConfigs();
+        if (!transactional) {
+            // a batch pipelines several versions of a key, a retried earlier send must not overtake a later one
+            props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+            return new DefaultKafkaProducerFactory<>(props);
+        }
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        // retries of an idempotent producer neither duplicate nor reorder records
+        props.put(ProducerConfig.RETRIES_CONFIG, 10);
+        final DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(props);
+        // transactional ids must not be shared between instances, or they fence each other off, but have to survive a
+        // restart: the restarted instance fences its predecessor and aborts the transactions it left open, which
+        // read_committed consumers would wait for until the transaction timeout otherwise
+        factory.setTransactionIdPrefix(transactionIdPrefix + instanceId + "-");
+        return factory;
     }
 
     private Map<String, Object> producerConfigs() {
@@ -51,7 +115,7 @@ public class KafkaProducerConfiguration {
 
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, servers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
         props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 500);
         //props.put(ProducerConfig.ACKS_CONFIG, "all");
         props.put(ProducerConfig.RETRIES_CONFIG, 2);
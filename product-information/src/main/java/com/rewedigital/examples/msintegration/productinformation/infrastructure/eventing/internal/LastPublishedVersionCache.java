@@ -0,0 +1,227 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process cache of the last published versions. Entries are loaded lazily from {@link LastPublishedVersion} and
+ * written back in one JDBC batch per relay batch, so checking for outdated events needs no database access once a
+ * key is known. Keys are spread over a fixed set of lock stripes, each holding at most its share of the configured
+ * number of entries. Beyond that the least recently used entries that are stored already are evicted and reloaded
+ * on their next access.
+ *
+ * A stripe only guards the cache itself. Callers have to serialize the relays of a key from checking its version
+ * until the new one is stored, otherwise two relays may both find the same version unpublished.
+ *
+ * The cache assumes this instance is the only relay of the keys it sees: within the instance the relays of a bucket
+ * are serialized by the {@link BucketLocks}, a second instance relaying the same buckets would not see its
+ * updates. With several instances the {@link RelayLeases} keep the buckets apart and invalidate the cache whenever
+ * this instance takes over buckets from another one.
+ */
+@Component
+@ConditionalOnProperty(name = "eventing.relay.version-cache.enabled", havingValue = "true")
+public class LastPublishedVersionCache implements PublishedVersions {
+
+    private static final int STRIPES = 64;
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    @Inject
+    public LastPublishedVersionCache(final EntityManager entityManager, final JdbcTemplate jdbcTemplate,
+        @Value("${eventing.relay.version-cache.max-entries}") final int maxEntries) {
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        final int capacity = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    @Override
+    public long lastPublished(final String lastPublishedVersionId) {
+        final Stripe stripe = stripe(lastPublishedVersionId);
+        stripe.lock.lock();
+        try {
+            return obtain(stripe, lastPublishedVersionId).version;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public long peekLastPublished(final String lastPublishedVersionId) {
+        // loading needs no transaction, the entity manager only finds the row
+        return lastPublished(lastPublishedVersionId);
+    }
+
+    @Override
+    public void published(final String lastPublishedVersionId, final long version) {
+        final Stripe stripe = stripe(lastPublishedVersionId);
+        stripe.lock.lock();
+        try {
+            final CachedVersion cached = obtain(stripe, lastPublishedVersionId);
+            if (cached.version < version) {
+                cached.version = version;
+                cached.dirty = true;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Upserts the versions: whether a row exists can not be told from the cache, another instance may have inserted
+     * it while relaying the bucket before, or the entry was evicted and reloaded in between.
+     */
+    @Override
+    public void store(final Collection<String> lastPublishedVersionIds) {
+        final List<Object[]> merges = new ArrayList<>();
+        final List<String> written = new ArrayList<>();
+        for (final String id : lastPublishedVersionIds) {
+            final Stripe stripe = stripe(id);
+            stripe.lock.lock();
+            try {
+                final CachedVersion cached = stripe.versions.get(id);
+                if (cached == null || !cached.dirty) {
+                    continue;
+                }
+                merges.add(new Object[] {id, cached.version});
+                cached.dirty = false;
+                written.add(id);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (written.isEmpty()) {
+            return;
+        }
+
+        evictOnRollback(written);
+        jdbcTemplate.batchUpdate("MERGE INTO LAST_PUBLISHED_VERSION (id, version) KEY(id) VALUES (?, ?)", merges);
+    }
+
+    @Override
+    public void invalidate() {
+        // stripe by stripe, so that a version recorded concurrently but not stored yet is not lost
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.versions.values().removeIf(cached -> !cached.dirty);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    void evict(final Collection<String> lastPublishedVersionIds) {
+        for (final String id : lastPublishedVersionIds) {
+            final Stripe stripe = stripe(id);
+            stripe.lock.lock();
+            try {
+                stripe.versions.remove(id);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void evictOnRollback(final Collection<String> lastPublishedVersionIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(final int status) {
+                if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                    // the database is the source of truth again, reload on next access
+                    evict(lastPublishedVersionIds);
+                }
+            }
+        });
+    }
+
+    private CachedVersion obtain(final Stripe stripe, final String lastPublishedVersionId) {
+        final CachedVersion cached = stripe.versions.get(lastPublishedVersionId);
+        if (cached != null) {
+            return cached;
+        }
+        final LastPublishedVersion stored = entityManager.find(LastPublishedVersion.class, lastPublishedVersionId);
+        final CachedVersion loaded = new CachedVersion(stored == null ? -1L : stored.getVersion());
+        if (stored != null) {
+            entityManager.detach(stored);
+        }
+        stripe.versions.put(lastPublishedVersionId, loaded);
+        return loaded;
+    }
+
+    private Stripe stripe(final String lastPublishedVersionId) {
+        return stripes[Math.floorMod(lastPublishedVersionId.hashCode(), STRIPES)];
+    }
+
+    private static final class Stripe {
+        private final Lock lock = new ReentrantLock();
+        private final Map<String, CachedVersion> versions;
+
+        private Stripe(final int capacity) {
+            this.versions = new LruVersions(capacity);
+        }
+    }
+
+    /**
+     * Access ordered, beyond its capacity it drops the least recently used version that is not dirty. Dirty ones
+     * are kept until they are stored.
+     */
+    private static final class LruVersions extends LinkedHashMap<String, CachedVersion> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        private LruVersions(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedVersion> eldest) {
+            if (size() > capacity) {
+                final Iterator<CachedVersion> values = values().iterator();
+                // the entry just added is last and about to be used
+                for (int i = size() - 1; i > 0; i--) {
+                    if (!values.next().dirty) {
+                        values.remove();
+                        break;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class CachedVersion {
+        private long version;
+        private boolean dirty;
+
+        private CachedVersion(final long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.Collection;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads and locks the {@link LastPublishedVersion} row of every relayed key, so concurrent relays on any number of
+ * instances serialize per key.
+ */
+@Component
+@ConditionalOnProperty(name = "eventing.relay.version-cache.enabled", havingValue = "false", matchIfMissing = true)
+public class LockingPublishedVersions implements PublishedVersions {
+
+    private final EntityManager entityManager;
+
+    @Inject
+    public LockingPublishedVersions(final EntityManager entityManager) {
+        this.entityManager = Objects.requireNonNull(entityManager);
+    }
+
+    @Override
+    public long lastPublished(final String lastPublishedVersionId) {
+        return obtain(lastPublishedVersionId).getVersion();
+    }
+
+    @Override
+    public long peekLastPublished(final String lastPublishedVersionId) {
+        final LastPublishedVersion stored = entityManager.find(LastPublishedVersion.class, lastPublishedVersionId);
+        return stored == null ? -1L : stored.getVersion();
+    }
+
+    @Override
+    public void published(final String lastPublishedVersionId, final long version) {
+        final LastPublishedVersion v = obtain(lastPublishedVersionId);
+        if (v.getVersion() < version) {
+            v.setVersion(version);
+        }
+    }
+
+    @Override
+    public void store(final Collection<String> lastPublishedVersionIds) {
+        // managed entities are written on flush
+    }
+
+    private LastPublishedVersion obtain(final String lastPublishedVersionId) {
+        final LastPublishedVersion existing =
+            entityManager.find(LastPublishedVersion.class, lastPublishedVersionId, LockModeType.PESSIMISTIC_WRITE);
+        if (existing != null) {
+            return existing;
+        }
+        final LastPublishedVersion created = LastPublishedVersion.of(lastPublishedVersionId);
+        entityManager.persist(created);
+        return created;
+    }
+}
@@ -0,0 +1,123 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Holds writes back while the outbox is not drained fast enough. Depth and age of the oldest event are sampled
+ * periodically, so deciding costs no statement per request. Between the delay and the reject limits a write is
+ * delayed the more the closer the outbox gets to the reject limits, beyond them it is rejected.
+ */
+@Component
+public class OutboxAdmission {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxAdmission.class);
+
+    private final OutboxMetrics metrics;
+    private final boolean enabled;
+    private final long delayEvents;
+    private final long delayAgeMs;
+    private final long rejectEvents;
+    private final long rejectAgeMs;
+    private final long maxDelayMs;
+    private final long retryAfterSeconds;
+    private final Counter delayed;
+    private final Counter rejected;
+
+    private volatile double pressure;
+
+    @Inject
+    public OutboxAdmission(final OutboxMetrics metrics, final MeterRegistry registry,
+        @Value("${eventing.admission.enabled}") final boolean enabled,
+        @Value("${eventing.admission.delay.events}") final long delayEvents,
+        @Value("${eventing.admission.delay.age.ms}") final long delayAgeMs,
+        @Value("${eventing.admission.reject.events}") final long rejectEvents,
+        @Value("${eventing.admission.reject.age.ms}") final long rejectAgeMs,
+        @Value("${eventing.admission.delay.max.ms}") final long maxDelayMs,
+        @Value("${eventing.admission.retry-after.s}") final long retryAfterSeconds) {
+        this.metrics = Objects.requireNonNull(metrics);
+        this.enabled = enabled;
+        this.delayEvents = delayEvents;
+        this.delayAgeMs = delayAgeMs;
+        this.rejectEvents = rejectEvents;
+        this.rejectAgeMs = rejectAgeMs;
+        this.maxDelayMs = maxDelayMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.delayed = admitted(registry, "delayed");
+        this.rejected = admitted(registry, "rejected");
+    }
+
+    @Scheduled(fixedDelayString = "${eventing.admission.sample.ms}")
+    public void sample() {
+        if (!enabled) {
+            return;
+        }
+        // an outbox that could not be sampled does not hold writes back
+        final double sampled = Math.max(pressure(metrics.countEvents(), delayEvents, rejectEvents),
+            pressure(metrics.oldestEventAgeMs(), delayAgeMs, rejectAgeMs));
+        if (sampled >= 1 && pressure < 1) {
+            LOG.warn("Outbox exceeds its limits, rejecting writes");
+        }
+        pressure = sampled;
+    }
+
+    /**
+     * @return <code>true</code> if a write has to be rejected right away
+     */
+    public boolean rejects() {
+        if (pressure < 1) {
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    /**
+     * @return how long a write has to wait before it is admitted
+     */
+    public long delayMs() {
+        final double current = pressure;
+        if (current <= 0 || current >= 1) {
+            return 0;
+        }
+        delayed.increment();
+        return Math.round(current * maxDelayMs);
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * @return <code>0</code> up to the delay limit, rising to <code>1</code> at the reject limit
+     */
+    private static double pressure(final double value, final long delayLimit, final long rejectLimit) {
+        if (Double.isNaN(value)) {
+            return 0;
+        }
+        if (value >= rejectLimit) {
+            return 1;
+        }
+        if (value <= delayLimit) {
+            return 0;
+        }
+        return (value - delayLimit) / (rejectLimit - delayLimit);
+    }
+
+    private static Counter admitted(final MeterRegistry registry, final String outcome) {
+        return Counter.builder("eventing.admission.writes")
+            .description("writes held back because of the outbox backlog")
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+}
@@ -0,0 +1,142 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.EventSource;
+
+/**
+ * Relays claimed outbox events, for the {@link DomainEventPublisher} and the {@link DirectEventRelay} alike. Events
+ * of a key that was published with the same or a newer version already are outdated, a delta that does not follow
+ * the last published version is published as complete entity instead. All others are handed to the producer
+ * without waiting in between, as one Kafka transaction if the producer is transactional, the acks are awaited
+ * together and only then versions are updated. Published and outdated events are deleted from the outbox, the others
+ * are released and retried with the next batch.
+ */
+@Component
+public class OutboxBatchRelay {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxBatchRelay.class);
+
+    private final KafkaGateway eventPublisher;
+    private final PublishedVersions publishedVersions;
+    private final OutboxClaims outboxClaims;
+    private final OutboxMetrics metrics;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final long batchTimeoutMs;
+
+    @Inject
+    public OutboxBatchRelay(final KafkaGateway eventPublisher, final PublishedVersions publishedVersions,
+        final OutboxClaims outboxClaims, final OutboxMetrics metrics, final EntityManager entityManager,
+        final JdbcTemplate jdbcTemplate, @Value("${eventing.relay.batch.timeout.ms}") final long batchTimeoutMs) {
+        this.eventPublisher = Objects.requireNonNull(eventPublisher);
+        this.publishedVersions = Objects.requireNonNull(publishedVersions);
+        this.outboxClaims = Objects.requireNonNull(outboxClaims);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    /**
+     * Relays the given claimed events ordered by version. Has to run within a transaction and, as
+     * {@link PublishedVersions} requires, under the {@link BucketLocks} of the events.
+     *
+     * @return the ids of the events that were published or are outdated and were deleted from the outbox
+     */
+    List<String> relay(final List<DomainEvent> events) {
+        final Map<String, Long> highestVersions = new HashMap<>();
+        final List<DomainEvent> publishable = new ArrayList<>(events.size());
+        final List<String> processed = new ArrayList<>(events.size());
+
+        for (final DomainEvent event : events) {
+            final String versionId = event.lastPublishedVersionId();
+            try {
+                final long highestVersion = highestVersions.containsKey(versionId)
+                    ? highestVersions.get(versionId) : publishedVersions.lastPublished(versionId);
+                if (event.getVersion() <= highestVersion) {
+                    processed.add(event.getId());
+                    metrics.outdated();
+                    continue;
+                }
+                final DomainEvent relayed =
+                    event.isDelta() && event.getVersion() - 1 != highestVersion ? complete(event) : event;
+                if (relayed == null) {
+                    processed.add(event.getId());
+                    metrics.outdated();
+                    continue;
+                }
+                publishable.add(relayed);
+                highestVersions.put(versionId, relayed.getVersion());
+            } catch (final Exception ex) {
+                LOG.error("Error publishing event with id [{}] due to {}", event.getId(), ex.getMessage(), ex);
+                metrics.failed();
+            }
+        }
+
+        final List<InFlightEvent> inFlight = InFlightEvent.of(publishable, eventPublisher.publishAll(publishable));
+        // need to block here so that following statements are executed inside transaction
+        final long deadline = System.currentTimeMillis() + batchTimeoutMs;
+        for (final InFlightEvent sent : inFlight) {
+            if (sent.await(deadline)) {
+                publishedVersions.published(sent.event().lastPublishedVersionId(), sent.event().getVersion());
+                processed.add(sent.event().getId());
+                metrics.published();
+            } else {
+                metrics.failed();
+            }
+        }
+        publishedVersions.store(highestVersions.keySet());
+        delete(processed);
+        final List<String> failed = new ArrayList<>(events.size());
+        events.forEach(event -> failed.add(event.getId()));
+        failed.removeAll(processed);
+        outboxClaims.release(failed);
+        return processed;
+    }
+
+    /**
+     * Consumers apply a delta to its base version only. If that version was not published, say because its event
+     * was lost, the delta is replaced by the complete entity in its current version, which supersedes the later
+     * events of the entity as well. Without the entity the delta is outdated, its deletion is published instead.
+     *
+     * @return the complete event under the id of the delta, <code>null</code> if the entity does not exist anymore
+     */
+    private DomainEvent complete(final DomainEvent delta) {
+        final Object entity = entityManager.find(delta.getEntityType(), delta.getKey());
+        if (!(entity instanceof EventSource)) {
+            return null;
+        }
+        entityManager.detach(entity);
+        LOG.info("Publishing {} [{}] in version {} instead of the delta to version {}, its base was not published",
+            delta.getAggregateName(), delta.getKey(), ((EventSource) entity).getVersion(), delta.getVersion());
+        return EventPublishingEntityListenerAdapter.lookup().completeEvent((EventSource) entity, delta.getId());
+    }
+
+    /**
+     * Removes the given events with one bulk statement instead of one delete per row. The events are claimed by this
+     * relay, so nobody else can have touched them in between.
+     */
+    private void delete(final Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        final String placeholders = String.join(", ", Collections.nCopies(eventIds.size(), "?"));
+        jdbcTemplate.update("DELETE FROM DOMAIN_EVENT WHERE id IN (" + placeholders + ")", eventIds.toArray());
+    }
+}
@@ -0,0 +1,140 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+
+import org.hibernate.LockOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Claims outbox events for a relay. A claim marks the rows with the time it expires and is committed before the
+ * events are published, so no row stays locked while a relay waits for acks: writers coalescing pending events and
+ * other relays skip claimed rows instead of waiting for them. A relay deletes the rows it is done with and releases
+ * the others. A claim that is neither, e.g. because its relay died, expires after the claim ttl.
+ */
+@Component
+public class OutboxClaims {
+
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String forUpdateSkipLocked;
+    private final long ttlMs;
+
+    @Inject
+    public OutboxClaims(final EntityManager entityManager, final EntityManagerFactory entityManagerFactory,
+        final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager,
+        @Value("${eventing.relay.claim.ttl.ms}") final long ttlMs,
+        @Value("${eventing.relay.batch.timeout.ms}") final long batchTimeoutMs) {
+        if (ttlMs <= batchTimeoutMs) {
+            // a claim has to outlast the wait for acks, otherwise another relay publishes the event as well
+            throw new IllegalStateException("claim ttl has to be longer than the relay batch timeout");
+        }
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.forUpdateSkipLocked = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices()
+            .getDialect().getForUpdateSkipLockedString();
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Claims the next unclaimed events within the given bucket range that were written after the given sequence.
+     *
+     * @return the claimed events, detached and ordered by version
+     */
+    List<DomainEvent> claim(final BucketRange buckets, final long afterSequence, final int batchSize) {
+        return transactionTemplate.execute(status -> {
+            final List<DomainEvent> events = findUnclaimed(buckets, afterSequence, batchSize);
+            final List<String> ids = new ArrayList<>(events.size());
+            events.forEach(event -> ids.add(event.getId()));
+            mark(ids);
+            events.forEach(entityManager::detach);
+            return events;
+        });
+    }
+
+    /**
+     * Claims the events with the given ids. Events that are claimed already or gone are left out.
+     *
+     * @return the ids of the claimed events
+     */
+    List<String> claim(final Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return transactionTemplate.execute(status -> {
+            final List<Object> args = new ArrayList<>(eventIds);
+            args.add(System.currentTimeMillis());
+            final List<String> ids = jdbcTemplate.queryForList("SELECT id FROM DOMAIN_EVENT WHERE id IN ("
+                + placeholders(eventIds.size()) + ") AND (claimed_until IS NULL OR claimed_until < ?)"
+                + forUpdateSkipLocked, String.class, args.toArray());
+            mark(ids);
+            return ids;
+        });
+    }
+
+    /**
+     * Hands events back that could not be relayed, so the next run picks them up right away.
+     */
+    void release(final Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE DOMAIN_EVENT SET claimed_until = NULL WHERE id IN ("
+            + placeholders(eventIds.size()) + ")", eventIds.toArray());
+    }
+
+    /**
+     * Keyset range scan over the sequence index. Rows locked by a concurrent claim are skipped instead of waited for.
+     * The batch is handed out ordered by version, so events of the same key are relayed in version order.
+     */
+    List<DomainEvent> findUnclaimed(final BucketRange buckets, final long afterSequence, final int batchSize) {
+        final List<DomainEvent> events = entityManager.createQuery(
+            "SELECT e FROM DomainEvent e WHERE e.sequence > :after AND e.bucket >= :from AND e.bucket < :to "
+                + "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.sequence",
+            DomainEvent.class)
+            .setParameter("after", afterSequence)
+            .setParameter("from", buckets.from())
+            .setParameter("to", buckets.to())
+            .setParameter("now", System.currentTimeMillis())
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED)
+            .setMaxResults(batchSize)
+            .getResultList();
+        final List<DomainEvent> result = new ArrayList<>(events);
+        result.sort(Comparator.comparing(DomainEvent::getVersion));
+        return result;
+    }
+
+    private void mark(final List<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        final List<Object> args = new ArrayList<>(eventIds.size() + 1);
+        args.add(System.currentTimeMillis() + ttlMs);
+        args.addAll(eventIds);
+        jdbcTemplate.update("UPDATE DOMAIN_EVENT SET claimed_until = ? WHERE id IN ("
+            + placeholders(eventIds.size()) + ")", args.toArray());
+    }
+
+    private static String placeholders(final int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Ownership of one outbox shard, see {@link RelayLeases}. The lease is free if it has no owner or has expired.
+ */
+@Entity
+public class OutboxLease {
+
+    @Id
+    private int shard;
+
+    private String owner;
+
+    // epoch millis, taken from the clock of the owner
+    private long expiresAt;
+
+    protected OutboxLease() {
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
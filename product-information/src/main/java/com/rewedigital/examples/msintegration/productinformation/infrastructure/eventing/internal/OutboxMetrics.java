@@ -0,0 +1,113 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.sql.Timestamp;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of the outbox and its relays. The backlog gauges query the outbox when they are read, so they cost one
+ * statement per scrape and none while nobody looks.
+ */
+@Component
+public class OutboxMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxMetrics.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter published;
+    private final Counter outdated;
+    private final Counter failed;
+    private final Timer ackSucceeded;
+    private final Timer ackFailed;
+    private final DistributionSummary batchFill;
+
+    @Inject
+    public OutboxMetrics(final MeterRegistry registry, final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+
+        Gauge.builder("eventing.outbox.events", this, OutboxMetrics::countEvents)
+            .description("events waiting in the outbox")
+            .register(registry);
+        TimeGauge.builder("eventing.outbox.oldest.age", this, TimeUnit.MILLISECONDS, OutboxMetrics::oldestEventAgeMs)
+            .description("age of the oldest event waiting in the outbox")
+            .register(registry);
+
+        this.published = relayed(registry, "published");
+        this.outdated = relayed(registry, "outdated");
+        this.failed = relayed(registry, "failed");
+        this.ackSucceeded = ack(registry, "success");
+        this.ackFailed = ack(registry, "failure");
+        this.batchFill = DistributionSummary.builder("eventing.relay.batch.fill")
+            .description("claimed events relative to the requested relay batch size")
+            .register(registry);
+    }
+
+    void published() {
+        published.increment();
+    }
+
+    void outdated() {
+        outdated.increment();
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    void acknowledged(final long latencyNanos, final boolean success) {
+        (success ? ackSucceeded : ackFailed).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void batchClaimed(final int claimed, final int batchSize) {
+        batchFill.record(batchSize > 0 ? (double) claimed / batchSize : 0);
+    }
+
+    double countEvents() {
+        try {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM DOMAIN_EVENT", Long.class);
+        } catch (final DataAccessException ex) {
+            LOG.warn("Could not count outbox events due to {}", ex.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    double oldestEventAgeMs() {
+        try {
+            final Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(time) FROM DOMAIN_EVENT", Timestamp.class);
+            return oldest == null ? 0 : Math.max(0, System.currentTimeMillis() - oldest.getTime());
+        } catch (final DataAccessException ex) {
+            LOG.warn("Could not determine oldest outbox event due to {}", ex.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    private static Counter relayed(final MeterRegistry registry, final String outcome) {
+        return Counter.builder("eventing.relay.events")
+            .description("events taken from the outbox by a relay")
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    private static Timer ack(final MeterRegistry registry, final String outcome) {
+        return Timer.builder("eventing.kafka.ack.latency")
+            .description("time from handing an event to the producer until the broker acknowledged it")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
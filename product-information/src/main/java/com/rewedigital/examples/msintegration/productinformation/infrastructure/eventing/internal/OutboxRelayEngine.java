@@ -0,0 +1,173 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relays the outbox with a fixed number of worker threads. Each worker owns a range of key-hash buckets, so events
+ * of one key are always relayed by the same worker in version order while unrelated keys are relayed in parallel.
+ * With {@link RelayLeases} there is one worker per shard, it only relays while this instance holds the lease.
+ */
+@Component
+public class OutboxRelayEngine implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxRelayEngine.class);
+
+    private final DomainEventPublisher domainEventPublisher;
+    private final RelayLeases relayLeases;
+    private final BucketLocks bucketLocks;
+    private final boolean schedulerEnabled;
+    private final int workerCount;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long minDelayMs;
+    private final long frequencyMs;
+    private final long idleDelayMs;
+    private final long targetLatencyMs;
+    private final int maxBatchesPerRun;
+
+    private ThreadPoolTaskScheduler scheduler;
+    private volatile boolean running;
+
+    @Inject
+    public OutboxRelayEngine(final DomainEventPublisher domainEventPublisher, final RelayLeases relayLeases,
+        final BucketLocks bucketLocks,
+        @Value("${eventing.scheduler.enabled}") final boolean schedulerEnabled,
+        @Value("${eventing.relay.workers}") final int workerCount,
+        @Value("${eventing.scheduler.batch.min}") final int minBatchSize,
+        @Value("${eventing.scheduler.batch.max}") final int maxBatchSize,
+        @Value("${eventing.scheduler.min.ms}") final long minDelayMs,
+        @Value("${eventing.scheduler.frequency.ms}") final long frequencyMs,
+        @Value("${eventing.scheduler.idle.ms}") final long idleDelayMs,
+        @Value("${eventing.scheduler.latency.target.ms}") final long targetLatencyMs,
+        @Value("${eventing.scheduler.drain.max-batches}") final int maxBatchesPerRun) {
+        this.domainEventPublisher = Objects.requireNonNull(domainEventPublisher);
+        this.relayLeases = Objects.requireNonNull(relayLeases);
+        this.bucketLocks = Objects.requireNonNull(bucketLocks);
+        this.schedulerEnabled = schedulerEnabled;
+        this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minDelayMs = minDelayMs;
+        this.frequencyMs = frequencyMs;
+        this.idleDelayMs = idleDelayMs;
+        this.targetLatencyMs = targetLatencyMs;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!schedulerEnabled || running) {
+            return;
+        }
+
+        final List<BucketRange> ranges =
+            relayLeases.isEnabled() ? relayLeases.shards() : BucketRange.split(workerCount);
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.min(workerCount, ranges.size()));
+        scheduler.setThreadNamePrefix("outbox-relay-");
+        scheduler.initialize();
+        running = true;
+
+        final List<RelayWorker> workers = new ArrayList<>(ranges.size());
+        ranges.forEach(range -> workers.add(new RelayWorker(range)));
+        workers.forEach(worker -> scheduler.schedule(worker, new Date()));
+        LOG.info("Started outbox relay with {} workers for bucket ranges {}", workers.size(), ranges);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdown();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void stop(final Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private class RelayWorker implements Runnable {
+
+        private final BucketRange buckets;
+        private final RelayPacer pacer =
+            new RelayPacer(minBatchSize, maxBatchSize, minDelayMs, frequencyMs, idleDelayMs, targetLatencyMs);
+
+        private RelayWorker(final BucketRange buckets) {
+            this.buckets = buckets;
+        }
+
+        /**
+         * Drains the owned buckets: keeps claiming batches, each in its own transaction, as long as they come back
+         * full, then reschedules itself after the delay chosen by the {@link RelayPacer}. Every run starts at the
+         * head of the outbox, so events that failed or were claimed elsewhere are picked up again by the next run.
+         * Without the lease of its buckets the worker only reschedules itself.
+         */
+        @Override
+        public void run() {
+            try {
+                boolean full = true;
+                long lastSequence = 0;
+                for (int i = 0; running && full && i < maxBatchesPerRun && relayLeases.holds(buckets); i++) {
+                    final int batchSize = pacer.batchSize();
+                    final long start = System.currentTimeMillis();
+                    final DomainEventPublisher.RelayedBatch batch = relayBatch(lastSequence, batchSize);
+                    lastSequence = batch.lastSequence();
+                    full = pacer.onBatch(batch.claimed(), System.currentTimeMillis() - start);
+                }
+            } catch (final RuntimeException ex) {
+                LOG.error("Error relaying outbox buckets {}", buckets, ex);
+                pacer.onBatch(0, 0);
+            } finally {
+                reschedule();
+            }
+        }
+
+        private DomainEventPublisher.RelayedBatch relayBatch(final long lastSequence, final int batchSize) {
+            bucketLocks.lock(buckets);
+            try {
+                return domainEventPublisher.relayBatch(buckets, lastSequence, batchSize);
+            } finally {
+                bucketLocks.unlock(buckets);
+            }
+        }
+
+        private void reschedule() {
+            synchronized (OutboxRelayEngine.this) {
+                if (running) {
+                    scheduler.schedule(this, new Date(System.currentTimeMillis() + pacer.delayMs()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Compression of stored event payloads. The name of a codec doubles as the value of the
+ * <code>content-encoding</code> header when compressed payloads are forwarded to Kafka.
+ */
+public enum PayloadCodec {
+
+    NONE("identity") {
+        @Override
+        public byte[] encode(final byte[] payload) {
+            return payload;
+        }
+
+        @Override
+        public byte[] decode(final byte[] payload) {
+            return payload;
+        }
+
+        @Override
+        OutputStream compressing(final OutputStream out) {
+            return out;
+        }
+
+        @Override
+        InputStream decompressing(final InputStream in) {
+            return in;
+        }
+    },
+
+    GZIP("gzip") {
+        @Override
+        OutputStream compressing(final OutputStream out) throws IOException {
+            return new GZIPOutputStream(out);
+        }
+
+        @Override
+        InputStream decompressing(final InputStream in) throws IOException {
+            return new GZIPInputStream(in);
+        }
+    },
+
+    // LZ4 frame format, lz4-java comes with the Kafka client
+    LZ4("lz4") {
+        @Override
+        OutputStream compressing(final OutputStream out) throws IOException {
+            return new LZ4FrameOutputStream(out);
+        }
+
+        @Override
+        InputStream decompressing(final InputStream in) throws IOException {
+            return new LZ4FrameInputStream(in);
+        }
+    };
+
+    private final String contentEncoding;
+
+    PayloadCodec(final String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String contentEncoding() {
+        return contentEncoding;
+    }
+
+    public byte[] encode(final byte[] payload) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + 64);
+        try (final OutputStream compressing = compressing(out)) {
+            compressing.write(payload);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    public byte[] decode(final byte[] payload) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+        try (final InputStream decompressing = decompressing(new ByteArrayInputStream(payload))) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = decompressing.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    abstract OutputStream compressing(OutputStream out) throws IOException;
+
+    abstract InputStream decompressing(InputStream in) throws IOException;
+}
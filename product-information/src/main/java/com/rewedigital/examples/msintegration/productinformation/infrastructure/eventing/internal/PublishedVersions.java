@@ -0,0 +1,39 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.Collection;
+
+/**
+ * Keeps track of the last version published per aggregate key, so the relay can drop outdated events. Ids are
+ * built by {@link DomainEvent#lastPublishedVersionId()}.
+ *
+ * Unless an implementation says otherwise, relays of the same key have to be serialized by the caller from
+ * {@link #lastPublished} until {@link #store}.
+ */
+public interface PublishedVersions {
+
+    /**
+     * @return the last published version or <code>-1</code> if nothing was published for the id yet
+     */
+    long lastPublished(String lastPublishedVersionId);
+
+    /**
+     * Reads the last published version for a caller that does not relay the key, without locking or creating
+     * anything and without a transaction.
+     *
+     * @return the last published version or <code>-1</code> if nothing was published for the id yet
+     */
+    long peekLastPublished(String lastPublishedVersionId);
+
+    void published(String lastPublishedVersionId, long version);
+
+    /**
+     * Writes the versions recorded for the given ids within the current transaction.
+     */
+    void store(Collection<String> lastPublishedVersionIds);
+
+    /**
+     * Forgets versions that were read but not changed since, called when keys may have been relayed elsewhere.
+     */
+    default void invalidate() {
+    }
+}
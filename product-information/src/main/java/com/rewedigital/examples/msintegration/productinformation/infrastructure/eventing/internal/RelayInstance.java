@@ -0,0 +1,28 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Heartbeat of a relaying instance, so that instances holding no lease yet count when shards are shared out.
+ */
+@Entity
+public class RelayInstance {
+
+    @Id
+    private String id;
+
+    // epoch millis, taken from the clock of the instance
+    private long expiresAt;
+
+    protected RelayInstance() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,278 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Shares the outbox among several instances. The buckets are grouped into a fixed number of shards and each shard
+ * is leased to one instance at a time, only the holder relays it. Leases are renewed by a heartbeat and expire when
+ * their holder stops renewing them, e.g. because it died, then any other instance takes the shard over. Every
+ * instance holds at most an even share of the shards and lets the leases above its share expire, so the shards
+ * spread out again when instances join.
+ *
+ * Expiry is judged by the clocks of the instances, the lease ttl has to be well above the clock skew between them.
+ */
+@Component
+public class RelayLeases implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RelayLeases.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PublishedVersions publishedVersions;
+    private final boolean enabled;
+    private final boolean schedulerEnabled;
+    private final List<BucketRange> shards;
+    private final long ttlMs;
+    private final long heartbeatMs;
+    private final String owner = UUID.randomUUID().toString();
+
+    private volatile Held held = Held.NONE;
+    private ThreadPoolTaskScheduler scheduler;
+    private volatile boolean running;
+
+    @Inject
+    public RelayLeases(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager,
+        final PublishedVersions publishedVersions,
+        @Value("${eventing.relay.leases.enabled}") final boolean enabled,
+        @Value("${eventing.scheduler.enabled}") final boolean schedulerEnabled,
+        @Value("${eventing.relay.leases.shards}") final int shardCount,
+        @Value("${eventing.relay.leases.ttl.ms}") final long ttlMs,
+        @Value("${eventing.relay.leases.heartbeat.ms}") final long heartbeatMs) {
+        if (ttlMs <= 2 * heartbeatMs) {
+            // a lease has to outlive a late heartbeat, otherwise it moves while its holder is still relaying
+            throw new IllegalStateException("lease ttl has to be more than twice the heartbeat interval");
+        }
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publishedVersions = Objects.requireNonNull(publishedVersions);
+        this.enabled = enabled;
+        this.schedulerEnabled = schedulerEnabled;
+        this.shards = BucketRange.split(shardCount);
+        this.ttlMs = ttlMs;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return <code>true</code> if this instance may relay events of the given bucket, always if leases are disabled
+     */
+    public boolean owns(final int bucket) {
+        if (!enabled) {
+            return true;
+        }
+        final Held current = held;
+        return current.buckets.get(bucket) && System.currentTimeMillis() < current.validUntil;
+    }
+
+    boolean holds(final BucketRange shard) {
+        return owns(shard.from());
+    }
+
+    List<BucketRange> shards() {
+        return shards;
+    }
+
+    /**
+     * @return the indexes of the shards this instance may relay right now
+     */
+    Set<Integer> heldShards() {
+        final Held current = held;
+        return System.currentTimeMillis() < current.validUntil ? current.shards : Collections.emptySet();
+    }
+
+    /**
+     * Renews the leases within the share of this instance and claims free or expired ones up to that share.
+     */
+    void heartbeat() {
+        ensureLeases();
+        final long now = System.currentTimeMillis();
+        final long expiresAt = now + ttlMs;
+        final Set<Integer> gained = new TreeSet<>();
+        final Set<Integer> kept = transactionTemplate.execute(status -> renewAndClaim(now, expiresAt, gained));
+        if (!gained.isEmpty()) {
+            // another instance may have relayed these shards since, what is known about their keys is stale
+            publishedVersions.invalidate();
+            LOG.info("Relay {} took over outbox shards {}", owner, gained);
+        }
+        // stop relaying a heartbeat before the leases expire, so a late batch does not overlap with the next holder
+        held = new Held(kept, shards, expiresAt - heartbeatMs);
+    }
+
+    private Set<Integer> renewAndClaim(final long now, final long expiresAt, final Set<Integer> gained) {
+        if (jdbcTemplate.update("UPDATE RELAY_INSTANCE SET expires_at = ? WHERE id = ?", expiresAt, owner) == 0) {
+            jdbcTemplate.update("INSERT INTO RELAY_INSTANCE (id, expires_at) VALUES (?, ?)", owner, expiresAt);
+        }
+        jdbcTemplate.update("DELETE FROM RELAY_INSTANCE WHERE expires_at < ?", now - ttlMs);
+        final int instances = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM RELAY_INSTANCE WHERE expires_at >= ?", Integer.class, now);
+        final int share = (shards.size() + instances - 1) / instances;
+
+        final List<Object[]> renewals = new ArrayList<>();
+        final List<Integer> free = new ArrayList<>();
+        final Set<Integer> formerlyOwn = new HashSet<>();
+        jdbcTemplate.query("SELECT shard, owner, expires_at FROM OUTBOX_LEASE WHERE shard < ? ORDER BY shard",
+            row -> {
+                final int shard = row.getInt("shard");
+                final boolean own = owner.equals(row.getString("owner"));
+                final boolean expired = row.getString("owner") == null || row.getLong("expires_at") < now;
+                if (own && !expired && renewals.size() < share) {
+                    renewals.add(new Object[] {expiresAt, shard, owner});
+                } else if (expired) {
+                    free.add(shard);
+                    if (own) {
+                        formerlyOwn.add(shard);
+                    }
+                }
+            }, shards.size());
+
+        final Set<Integer> kept = new TreeSet<>();
+        final int[] renewed = renewals.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(
+            "UPDATE OUTBOX_LEASE SET expires_at = ? WHERE shard = ? AND owner = ?", renewals);
+        for (int i = 0; i < renewed.length; i++) {
+            if (renewed[i] > 0) {
+                kept.add((Integer) renewals.get(i)[1]);
+            }
+        }
+        for (final Integer shard : free) {
+            if (kept.size() >= share) {
+                break;
+            }
+            if (jdbcTemplate.update("UPDATE OUTBOX_LEASE SET owner = ?, expires_at = ? "
+                + "WHERE shard = ? AND (owner IS NULL OR expires_at < ?)", owner, expiresAt, shard, now) > 0) {
+                kept.add(shard);
+                if (!formerlyOwn.contains(shard)) {
+                    gained.add(shard);
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Creates the lease rows of shards that are not known yet, e.g. on first start or after the shard count was
+     * raised. Runs without transaction, as instances starting at the same time may insert the same rows.
+     */
+    private void ensureLeases() {
+        final Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT shard FROM OUTBOX_LEASE WHERE shard < ?", Integer.class, shards.size()));
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (existing.contains(shard)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update("INSERT INTO OUTBOX_LEASE (shard, owner, expires_at) VALUES (?, NULL, 0)", shard);
+            } catch (final DuplicateKeyException ex) {
+                LOG.debug("Lease of outbox shard {} was created by another instance", shard);
+            }
+        }
+    }
+
+    /**
+     * Hands the leases back right away, so other instances need not wait for them to expire.
+     */
+    private void release() {
+        held = Held.NONE;
+        try {
+            jdbcTemplate.update("UPDATE OUTBOX_LEASE SET owner = NULL, expires_at = 0 WHERE owner = ?", owner);
+            jdbcTemplate.update("DELETE FROM RELAY_INSTANCE WHERE id = ?", owner);
+        } catch (final RuntimeException ex) {
+            LOG.warn("Could not release outbox leases of relay {}, they expire instead", owner, ex);
+        }
+    }
+
+    private void scheduledHeartbeat() {
+        try {
+            heartbeat();
+        } catch (final RuntimeException ex) {
+            // the held leases run out unless one of the next heartbeats gets through
+            LOG.error("Error renewing outbox leases of relay {}", owner, ex);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || !schedulerEnabled || running) {
+            return;
+        }
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("outbox-lease-");
+        scheduler.initialize();
+        running = true;
+        scheduler.scheduleWithFixedDelay(this::scheduledHeartbeat, new Date(), heartbeatMs);
+        LOG.info("Started outbox leases of relay {} for {} shards", owner, shards.size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdown();
+        scheduler = null;
+        release();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void stop(final Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    /**
+     * Starts before and stops after the {@link OutboxRelayEngine}.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1;
+    }
+
+    private static final class Held {
+        private static final Held NONE = new Held(Collections.emptySet(), Collections.emptyList(), 0);
+
+        private final Set<Integer> shards;
+        private final BitSet buckets = new BitSet(DomainEvent.BUCKETS);
+        private final long validUntil;
+
+        private Held(final Set<Integer> shards, final List<BucketRange> ranges, final long validUntil) {
+            this.shards = Collections.unmodifiableSet(shards);
+            this.validUntil = validUntil;
+            shards.forEach(shard -> buckets.set(ranges.get(shard).from(), ranges.get(shard).to()));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+/**
+ * Derives batch size and poll interval of the outbox relay from what the previous batches observed.
+ *
+ * Full batches mean there is a backlog: the batch size grows as long as a batch stays below the latency target
+ * and shrinks again when it exceeds it. Partial batches bring the batch size back towards the claimed amount and
+ * an empty outbox lets the poll interval back off up to the idle interval.
+ */
+class RelayPacer {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long minDelayMs;
+    private final long frequencyMs;
+    private final long idleDelayMs;
+    private final long targetLatencyMs;
+
+    private int batchSize;
+    private long delayMs;
+
+    RelayPacer(final int minBatchSize, final int maxBatchSize, final long minDelayMs, final long frequencyMs,
+        final long idleDelayMs, final long targetLatencyMs) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException(
+                "invalid batch size range [" + minBatchSize + ", " + maxBatchSize + "]");
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minDelayMs = minDelayMs;
+        this.frequencyMs = Math.max(minDelayMs, frequencyMs);
+        this.idleDelayMs = Math.max(this.frequencyMs, idleDelayMs);
+        this.targetLatencyMs = targetLatencyMs;
+        this.batchSize = minBatchSize;
+        this.delayMs = this.frequencyMs;
+    }
+
+    synchronized int batchSize() {
+        return batchSize;
+    }
+
+    synchronized long delayMs() {
+        return delayMs;
+    }
+
+    /**
+     * @return <code>true</code> if the batch was full and the relay should claim the next one right away
+     */
+    synchronized boolean onBatch(final int claimed, final long latencyMs) {
+        final boolean full = claimed >= batchSize;
+        if (full) {
+            batchSize = latencyMs > targetLatencyMs ? Math.max(minBatchSize, batchSize / 2)
+                : Math.min(maxBatchSize, batchSize * 2);
+            delayMs = minDelayMs;
+        } else if (claimed > 0) {
+            batchSize = Math.max(minBatchSize, Math.max(claimed, batchSize / 2));
+            delayMs = frequencyMs;
+        } else {
+            batchSize = minBatchSize;
+            delayMs = Math.min(idleDelayMs, Math.max(frequencyMs, delayMs * 2));
+        }
+        return full;
+    }
+}
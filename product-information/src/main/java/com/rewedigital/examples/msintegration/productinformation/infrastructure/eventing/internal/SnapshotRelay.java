@@ -0,0 +1,107 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Publishes snapshot events so that none follows a newer event of its key: bucket by bucket, the events of a bucket
+ * are sent under its lock like a relay sends them and acknowledged before the lock is released, keys published with a
+ * newer version already are left out. Only one bucket is held at a time and only for a short ack timeout, far below
+ * the relay batch timeout, so the relays of the other buckets go on and those of the held one wait briefly.
+ *
+ * This orders snapshots with the relays of this instance only. On a compacted topic a snapshot appended after the
+ * live event of another instance would be what compaction keeps, so snapshots are refused there.
+ */
+@Component
+public class SnapshotRelay {
+
+    private final KafkaGateway kafkaGateway;
+    private final PublishedVersions publishedVersions;
+    private final BucketLocks bucketLocks;
+    private final boolean compacted;
+    private final long ackTimeoutMs;
+
+    @Inject
+    public SnapshotRelay(final KafkaGateway kafkaGateway, final PublishedVersions publishedVersions,
+        final BucketLocks bucketLocks, @Value("${eventing.topic.compacted}") final boolean compacted,
+        @Value("${eventing.snapshot.ack.timeout.ms}") final long ackTimeoutMs,
+        @Value("${eventing.relay.batch.timeout.ms}") final long batchTimeoutMs) {
+        if (ackTimeoutMs >= batchTimeoutMs) {
+            // the relays of a bucket wait for the snapshot holding it
+            throw new IllegalStateException("snapshot ack timeout has to be shorter than the relay batch timeout");
+        }
+        this.kafkaGateway = Objects.requireNonNull(kafkaGateway);
+        this.publishedVersions = Objects.requireNonNull(publishedVersions);
+        this.bucketLocks = Objects.requireNonNull(bucketLocks);
+        this.compacted = compacted;
+        this.ackTimeoutMs = ackTimeoutMs;
+    }
+
+    public boolean isAvailable() {
+        return !compacted;
+    }
+
+    /**
+     * Publishes the events and waits until they are acknowledged.
+     *
+     * @return the number of published events
+     * @throws IllegalStateException if the events of a bucket were not acknowledged in time
+     */
+    public int publish(final List<DomainEvent> events) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("snapshots are not ordered with the live events of a compacted topic");
+        }
+        final Map<Integer, List<DomainEvent>> buckets = new TreeMap<>();
+        events.forEach(event -> buckets.computeIfAbsent(event.getBucket(), bucket -> new ArrayList<>()).add(event));
+        int published = 0;
+        for (final Map.Entry<Integer, List<DomainEvent>> bucket : buckets.entrySet()) {
+            published += publish(bucket.getKey(), bucket.getValue());
+        }
+        return published;
+    }
+
+    private int publish(final int bucket, final List<DomainEvent> events) {
+        bucketLocks.lock(bucket);
+        try {
+            final List<ListenableFuture<SendResult<String, byte[]>>> sent = new ArrayList<>(events.size());
+            for (final DomainEvent event : events) {
+                if (publishedVersions.peekLastPublished(event.lastPublishedVersionId()) <= event.getVersion()) {
+                    sent.add(kafkaGateway.publishSnapshot(event));
+                }
+            }
+            // the lock is held until the acks, as the relays publish through another producer
+            kafkaGateway.flushSnapshots();
+            awaitAcknowledged(sent);
+            return sent.size();
+        } finally {
+            bucketLocks.unlock(bucket);
+        }
+    }
+
+    private void awaitAcknowledged(final List<ListenableFuture<SendResult<String, byte[]>>> sent) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        try {
+            for (final ListenableFuture<SendResult<String, byte[]>> result : sent) {
+                result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for acknowledgements", ex);
+        } catch (final ExecutionException | TimeoutException ex) {
+            throw new IllegalStateException("snapshot events were not acknowledged", ex);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+/**
+ * Registers a {@link NewTopic} for every routed aggregate, which {@link org.springframework.kafka.core.KafkaAdmin}
+ * creates on startup if the topic does not exist yet. Existing topics are left as they are, neither their partitions
+ * nor their configuration are changed.
+ */
+class TopicRegistrar implements BeanDefinitionRegistryPostProcessor, EnvironmentAware {
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(final Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(final BeanDefinitionRegistry registry) {
+        final TopicRouting routing = Binder.get(environment).bind("eventing.topic", TopicRouting.class)
+            .orElseGet(TopicRouting::new);
+        final Map<String, String> configs = topicConfigs();
+        routing.getRoutes().forEach((aggregateName, route) -> registry.registerBeanDefinition(
+            aggregateName + "Topic",
+            BeanDefinitionBuilder.genericBeanDefinition(NewTopic.class, () -> route.toNewTopic(configs))
+                .getBeanDefinition()));
+    }
+
+    @Override
+    public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) {
+    }
+
+    private Map<String, String> topicConfigs() {
+        final Map<String, String> configs = new HashMap<>();
+        if (environment.getRequiredProperty("eventing.topic.compacted", Boolean.class)) {
+            configs.put(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT);
+            // consumers that are behind by more than that miss the deletion
+            configs.put(TopicConfig.DELETE_RETENTION_MS_CONFIG,
+                environment.getRequiredProperty("eventing.topic.tombstone.retention.ms"));
+        }
+        return configs;
+    }
+}
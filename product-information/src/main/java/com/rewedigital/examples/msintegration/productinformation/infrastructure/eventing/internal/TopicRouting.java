@@ -0,0 +1,60 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.admin.NewTopic;
+
+/**
+ * Maps the aggregate name of an event to the topic it is published to, along with the partitioning of that topic.
+ */
+public class TopicRouting {
+
+    private final Map<String, Route> routes = new HashMap<>();
+
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    public String topicOf(final String aggregateName) {
+        final Route route = routes.get(aggregateName);
+        if (route == null || route.getName() == null) {
+            throw new IllegalArgumentException("no topic configured for aggregate " + aggregateName);
+        }
+        return route.getName();
+    }
+
+    public static class Route {
+        private String name;
+        private int partitions = 1;
+        private short replication = 1;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(final int partitions) {
+            this.partitions = partitions;
+        }
+
+        public short getReplication() {
+            return replication;
+        }
+
+        public void setReplication(final short replication) {
+            this.replication = replication;
+        }
+
+        NewTopic toNewTopic(final Map<String, String> configs) {
+            return new NewTopic(name, partitions, replication).configs(new HashMap<>(configs));
+        }
+    }
+}
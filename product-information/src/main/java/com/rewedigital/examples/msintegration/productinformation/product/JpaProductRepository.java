@@ -1,8 +1,40 @@
 package com.rewedigital.examples.msintegration.productinformation.product;
 
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface JpaProductRepository extends JpaRepository<Product, String> {
 
+    /**
+     * Replaces all attributes of the product if the version of the stored product matches the given one.
+     *
+     * @return the number of updated rows, <code>0</code> if the product does not exist or has a different version
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.name = :#{#product.name}, p.vendor = :#{#product.vendor}, "
+        + "p.price = :#{#product.price}, p.description = :#{#product.description}, "
+        + "p.productNumber = :#{#product.productNumber}, p.image = :#{#product.image}, p.version = p.version + 1 "
+        + "WHERE p.id = :#{#product.id} AND p.version = :#{#product.version}")
+    int updateIfVersionMatches(@Param("product") Product product);
+
+    boolean existsByProductNumber(String productNumber);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(String after, Pageable page);
+
+    /**
+     * Must be consumed within a transaction and closed afterwards.
+     */
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<Product> streamAllOrderedById();
 }
@@ -0,0 +1,6 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JpaSnapshotCursorRepository extends JpaRepository<SnapshotCursor, String> {
+}
@@ -1,16 +1,19 @@
 package com.rewedigital.examples.msintegration.productinformation.product;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.ChangeTrackingEventSource;
 import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.EventPublishingEntityListener;
-import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.EventSource;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 @Entity
 @EntityListeners(EventPublishingEntityListener.class)
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Product implements EventSource {
+public class Product implements ChangeTrackingEventSource {
 
     @Id
     private String id;
@@ -35,6 +38,10 @@ public class Product implements EventSource {
     @Version
     private Long version;
 
+    // attributes as last read from or written to the database
+    @Transient
+    private Map<String, Object> loadedState;
+
     public void setId(final String id) {
         this.id = id;
     }
@@ -103,4 +110,36 @@ public class Product implements EventSource {
     public String getAggregateName() {
         return "product";
     }
+
+    @Override
+    public Map<String, Object> changedAttributes() {
+        if (loadedState == null) {
+            return null;
+        }
+        final Map<String, Object> changed = new LinkedHashMap<>();
+        attributes().forEach((name, value) -> {
+            if (!Objects.equals(loadedState.get(name), value)) {
+                changed.put(name, value);
+            }
+        });
+        return changed;
+    }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberLoadedState() {
+        loadedState = attributes();
+    }
+
+    private Map<String, Object> attributes() {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("name", name);
+        attributes.put("vendor", vendor);
+        attributes.put("price", price);
+        attributes.put("description", description);
+        attributes.put("productNumber", productNumber);
+        attributes.put("image", image);
+        return attributes;
+    }
 }
@@ -0,0 +1,52 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+@RestController
+public class ProductChangeController {
+
+    private final ProductChangeFeed changeFeed;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final long maxWaitMs;
+
+    @Inject
+    public ProductChangeController(final ProductChangeFeed changeFeed,
+        @Value("${products.page.size.default}") final int defaultPageSize,
+        @Value("${products.page.size.max}") final int maxPageSize,
+        @Value("${products.changes.wait.max.ms}") final long maxWaitMs) {
+        this.changeFeed = Objects.requireNonNull(changeFeed);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Lists the products changed after the given cursor, deleted ones included, with the cursor to continue from.
+     * Without cursor the feed starts at the beginning. With <code>wait</code> an empty response is held back for up
+     * to that many milliseconds until there are changes.
+     */
+    @RequestMapping(value = "/products/changes", method = RequestMethod.GET)
+    public DeferredResult<ProductChangeFeed.Changes> getChanges(
+        @RequestParam(required = false, defaultValue = "0") final String since,
+        @RequestParam(required = false) final Integer limit,
+        @RequestParam(required = false, defaultValue = "0") final long wait) {
+        final long cursor;
+        try {
+            cursor = Long.parseLong(since);
+        } catch (final NumberFormatException ex) {
+            throw new ProductBadRequestException("invalid cursor " + since);
+        }
+        final int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return changeFeed.await(cursor, pageSize, Math.min(wait, maxWaitMs));
+    }
+}
@@ -0,0 +1,171 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.ChangeLog;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.ChangeLogEntry;
+
+/**
+ * Serves the products changed since a cursor from the change log, in their current state. Readers waiting for
+ * changes are parked and answered as soon as the head of the log moves past their cursor, which is checked
+ * periodically so that changes written by other instances are noticed as well.
+ */
+@Component
+public class ProductChangeFeed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductChangeFeed.class);
+    private static final String AGGREGATE_NAME = "product";
+
+    private final ChangeLog changeLog;
+    private final JpaProductRepository productRepository;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    @Inject
+    public ProductChangeFeed(final ChangeLog changeLog, final JpaProductRepository productRepository) {
+        this.changeLog = Objects.requireNonNull(changeLog);
+        this.productRepository = Objects.requireNonNull(productRepository);
+    }
+
+    public Changes read(final long since, final int limit) {
+        final ChangeLog.Page page = changeLog.read(AGGREGATE_NAME, since, limit);
+        // a product changed several times within the page is reported once, at its last change
+        final Map<String, ChangeLogEntry> latest = new LinkedHashMap<>();
+        for (final ChangeLogEntry entry : page.entries()) {
+            latest.remove(entry.getKey());
+            latest.put(entry.getKey(), entry);
+        }
+        final Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(latest.keySet()).forEach(product -> products.put(product.getId(), product));
+        final List<Change> changes = new ArrayList<>(latest.size());
+        latest.values().forEach(entry -> changes.add(new Change(entry, products.get(entry.getKey()))));
+        return new Changes(page.cursor(), changes);
+    }
+
+    /**
+     * Answers right away if there are changes, otherwise once there are or after the given time with none.
+     */
+    public DeferredResult<Changes> await(final long since, final int limit, final long waitMs) {
+        final Changes changes = read(since, limit);
+        if (!changes.getChanges().isEmpty() || waitMs <= 0) {
+            final DeferredResult<Changes> result = new DeferredResult<>();
+            result.setResult(changes);
+            return result;
+        }
+        final DeferredResult<Changes> result = new DeferredResult<>(waitMs, changes);
+        final Waiter waiter = new Waiter(changes.cursor, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${products.changes.poll.ms}")
+    public void poll() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        try {
+            final long head = changeLog.head();
+            for (final Waiter waiter : waiters) {
+                if (waiter.since < head) {
+                    final Changes changes = read(waiter.since, waiter.limit);
+                    waiter.since = changes.cursor;
+                    if (!changes.getChanges().isEmpty()) {
+                        waiter.result.setResult(changes);
+                    }
+                }
+            }
+        } catch (final RuntimeException ex) {
+            LOG.warn("Could not check the change log for waiting readers due to {}", ex.getMessage());
+        }
+    }
+
+    private static class Waiter {
+        private final int limit;
+        private final DeferredResult<Changes> result;
+        private long since;
+
+        private Waiter(final long since, final int limit, final DeferredResult<Changes> result) {
+            this.since = since;
+            this.limit = limit;
+            this.result = result;
+        }
+    }
+
+    @JsonPropertyOrder({"cursor", "changes"})
+    public static class Changes {
+        private final long cursor;
+        private final List<Change> changes;
+
+        private Changes(final long cursor, final List<Change> changes) {
+            this.cursor = cursor;
+            this.changes = changes;
+        }
+
+        /**
+         * @return the cursor to pass as <code>since</code> with the next request
+         */
+        public String getCursor() {
+            return String.valueOf(cursor);
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonPropertyOrder({"id", "type", "version", "deleted", "product"})
+    public static class Change {
+        private final String id;
+        private final String type;
+        private final Long version;
+        private final boolean deleted;
+        private final Product product;
+
+        private Change(final ChangeLogEntry entry, final Product product) {
+            this.id = entry.getKey();
+            this.type = entry.getType();
+            // the product may have changed again since, the later change follows in the feed
+            this.version = product == null ? entry.getVersion() : product.getVersion();
+            this.deleted = product == null;
+            this.product = product;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+    }
+}
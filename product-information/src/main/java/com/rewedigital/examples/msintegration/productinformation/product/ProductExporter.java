@@ -0,0 +1,68 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the whole catalog as one JSON array while it is read from the database. Every product is detached once
+ * written, so neither the response nor the persistence context grow with the catalog.
+ */
+@Component
+public class ProductExporter {
+
+    private final JpaProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter productWriter;
+
+    @Inject
+    public ProductExporter(final JpaProductRepository productRepository, final EntityManager entityManager,
+        final PlatformTransactionManager transactionManager, final ObjectMapper objectMapper) {
+        this.productRepository = Objects.requireNonNull(productRepository);
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+        // the response buffer decides when to send, not every single product
+        this.productWriter =
+            objectMapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void writeAll(final OutputStream out) throws IOException {
+        try (final JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            transactionTemplate.execute(status -> {
+                try (final Stream<Product> products = productRepository.streamAllOrderedById()) {
+                    products.forEach(product -> write(generator, product));
+                }
+                return null;
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    private void write(final JsonGenerator generator, final Product product) {
+        try {
+            productWriter.writeValue(generator, product);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        entityManager.detach(product);
+    }
+}
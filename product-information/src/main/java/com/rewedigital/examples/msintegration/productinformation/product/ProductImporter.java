@@ -0,0 +1,246 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.IdGenerator;
+
+/**
+ * Imports products from newline delimited JSON. Lines are parsed one at a time and inserted in chunks, one
+ * transaction per chunk, so memory use depends on the chunk size only. The result of every line is written as soon
+ * as its chunk is committed.
+ */
+@Component
+public class ProductImporter {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductImporter.class);
+
+    private final JpaProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final IdGenerator idGenerator;
+    private final ObjectReader productReader;
+    private final ObjectWriter resultWriter;
+    private final int chunkSize;
+
+    @Inject
+    public ProductImporter(final JpaProductRepository productRepository, final EntityManager entityManager,
+        final PlatformTransactionManager transactionManager, final Validator validator, final IdGenerator idGenerator,
+        final ObjectMapper objectMapper, @Value("${products.bulk.chunk.size}") final int chunkSize) {
+        this.productRepository = Objects.requireNonNull(productRepository);
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = Objects.requireNonNull(validator);
+        this.idGenerator = Objects.requireNonNull(idGenerator);
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.resultWriter = objectMapper.writerFor(ImportResult.class);
+        this.chunkSize = chunkSize;
+    }
+
+    public void importProducts(final InputStream in, final OutputStream out) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        final List<ImportItem> chunk = new ArrayList<>(chunkSize);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            final ImportItem item = parse(lineNumber, line);
+            if (item.product == null) {
+                write(out, item.result);
+                continue;
+            }
+            chunk.add(item);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, out);
+            }
+        }
+        importChunk(chunk, out);
+    }
+
+    private ImportItem parse(final int lineNumber, final String line) {
+        final Product product;
+        try {
+            product = productReader.readValue(line);
+        } catch (final JsonProcessingException ex) {
+            return ImportItem.rejected(lineNumber, "malformed product: " + ex.getOriginalMessage());
+        } catch (final IOException ex) {
+            return ImportItem.rejected(lineNumber, "malformed product: " + ex.getMessage());
+        }
+        if (product.getId() != null) {
+            return ImportItem.rejected(lineNumber, "Must not provide id");
+        }
+        final Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            return ImportItem.rejected(lineNumber, violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        }
+        product.setId(idGenerator.nextId());
+        return new ImportItem(lineNumber, product);
+    }
+
+    /**
+     * Inserts the chunk in one transaction. If that fails, e.g. on a duplicate product number, the chunk is retried
+     * item by item to find out which of the products are to blame.
+     */
+    private void importChunk(final List<ImportItem> chunk, final OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            insert(chunk);
+            for (final ImportItem item : chunk) {
+                write(out, ImportResult.created(item.lineNumber, item.product));
+            }
+        } catch (final RuntimeException chunkFailure) {
+            LOG.debug("Importing chunk failed, retrying its {} products one by one", chunk.size(), chunkFailure);
+            for (final ImportItem item : chunk) {
+                write(out, insertSingle(item));
+            }
+        } finally {
+            chunk.clear();
+        }
+        out.flush();
+    }
+
+    private ImportResult insertSingle(final ImportItem item) {
+        try {
+            insert(Collections.singletonList(item));
+            return ImportResult.created(item.lineNumber, item.product);
+        } catch (final DataIntegrityViolationException ex) {
+            // the database message names tables and indexes, it is logged but not handed to the client
+            LOG.info("Rejected product of line {}", item.lineNumber, ex);
+            return ImportResult.rejected(item.lineNumber,
+                productRepository.existsByProductNumber(item.product.getProductNumber())
+                    ? "productNumber already exists"
+                    : "product violates a constraint");
+        } catch (final RuntimeException ex) {
+            LOG.error("Importing product of line {} failed", item.lineNumber, ex);
+            return ImportResult.rejected(item.lineNumber, "product could not be imported");
+        }
+    }
+
+    private void insert(final List<ImportItem> items) {
+        try {
+            transactionTemplate.execute(status -> {
+                items.forEach(item -> productRepository.save(item.product));
+                return null;
+            });
+        } catch (final RuntimeException ex) {
+            // a failed chunk leaves half-persisted products behind
+            items.forEach(item -> item.product.setVersion(null));
+            throw ex;
+        } finally {
+            // with an open entity manager per request the persistence context would grow with every chunk
+            entityManager.clear();
+        }
+    }
+
+    private void write(final OutputStream out, final ImportResult result) throws IOException {
+        out.write(resultWriter.writeValueAsBytes(result));
+        out.write('\n');
+    }
+
+    private static class ImportItem {
+        private final int lineNumber;
+        private final Product product;
+        private final ImportResult result;
+
+        private ImportItem(final int lineNumber, final Product product) {
+            this.lineNumber = lineNumber;
+            this.product = product;
+            this.result = null;
+        }
+
+        private ImportItem(final ImportResult result) {
+            this.lineNumber = result.getLine();
+            this.product = null;
+            this.result = result;
+        }
+
+        private static ImportItem rejected(final int lineNumber, final String error) {
+            return new ImportItem(ImportResult.rejected(lineNumber, error));
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class ImportResult {
+        private final int line;
+        private final String status;
+        private final String id;
+        private final Long version;
+        private final String error;
+
+        private ImportResult(final int line, final String status, final String id, final Long version,
+            final String error) {
+            this.line = line;
+            this.status = status;
+            this.id = id;
+            this.version = version;
+            this.error = error;
+        }
+
+        private static ImportResult created(final int line, final Product product) {
+            return new ImportResult(line, "created", product.getId(), product.getVersion(), null);
+        }
+
+        private static ImportResult rejected(final int line, final String error) {
+            return new ImportResult(line, "rejected", null, null, error);
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -1,28 +1,65 @@
 package com.rewedigital.examples.msintegration.productinformation.product;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.IdGenerator;
 
 @RestController
 public class ProductRestController {
 
     private final JpaProductRepository productRepository;
+    private final ProductImporter productImporter;
+    private final ProductExporter productExporter;
+    private final ProductUpdater productUpdater;
+    private final IdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Inject
-    public ProductRestController(final JpaProductRepository productRepository, final ObjectMapper objectMapper) {
+    public ProductRestController(final JpaProductRepository productRepository, final ObjectMapper objectMapper,
+        final ProductImporter productImporter, final ProductExporter productExporter,
+        final ProductUpdater productUpdater, final IdGenerator idGenerator,
+        @Value("${products.page.size.default}") final int defaultPageSize,
+        @Value("${products.page.size.max}") final int maxPageSize) {
         this.productRepository = Objects.requireNonNull(productRepository);
+        this.productImporter = Objects.requireNonNull(productImporter);
+        this.productExporter = Objects.requireNonNull(productExporter);
+        this.productUpdater = Objects.requireNonNull(productUpdater);
+        this.idGenerator = Objects.requireNonNull(idGenerator);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @RequestMapping(value = "/products", method = RequestMethod.POST)
@@ -32,17 +69,21 @@ public class ProductRestController {
             throw new ProductBadRequestException("Must not provide id");
         }
 
-        product.setId(UUID.randomUUID().toString());
+        product.setId(idGenerator.nextId());
         return productRepository.save(product);
     }
 
+    /**
+     * Imports newline delimited products. Responds with one result line per product, referring to its line number.
+     */
+    @RequestMapping(value = "/products/bulk", method = RequestMethod.POST, consumes = ProductImporter.NDJSON)
+    public void importProducts(final InputStream body, final HttpServletResponse response) throws IOException {
+        response.setContentType(ProductImporter.NDJSON);
+        productImporter.importProducts(body, response.getOutputStream());
+    }
+
     @RequestMapping(value = "/products/{productId}", method = RequestMethod.PUT)
-    @Transactional
     public Product updateProduct(@PathVariable final String productId, @RequestBody final Product product) {
-        productRepository
-            .findById(productId)
-            .orElseThrow(() -> new ProductNotFoundException("product with id %s does not exist", productId));
-
         if (!productId.equals(product.getId())) {
             throw new ProductBadRequestException("wrong id in payload");
         }
@@ -51,12 +92,99 @@ public class ProductRestController {
             throw new ProductBadRequestException("missing version attribute");
         }
 
-        return productRepository.save(product);
+        return productUpdater.update(product);
+    }
+
+    /**
+     * Changes only the attributes present in the body. The body has to carry the version the changes are based on.
+     */
+    @RequestMapping(value = "/products/{productId}", method = RequestMethod.PATCH)
+    public Product patchProduct(@PathVariable final String productId,
+        @RequestBody final Map<String, Object> changes) {
+        final Map<String, Object> attributes = new HashMap<>(changes);
+        final Object id = attributes.remove("id");
+        if (id != null && !productId.equals(id)) {
+            throw new ProductBadRequestException("wrong id in payload");
+        }
+
+        final Object version = attributes.remove("version");
+        if (!(version instanceof Number)) {
+            throw new ProductBadRequestException("missing version attribute");
+        }
+
+        return productUpdater.patch(productId, ((Number) version).longValue(), attributes);
     }
 
+    @RequestMapping(value = "/products/{productId}", method = RequestMethod.DELETE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Transactional
+    public void deleteProduct(@PathVariable final String productId) {
+        productRepository.delete(productRepository
+            .findById(productId)
+            .orElseThrow(() -> new ProductNotFoundException("product with id %s does not exist", productId)));
+    }
+
+    @RequestMapping(value = "/products/{productId}", method = RequestMethod.GET)
+    public ResponseEntity<Product> getProduct(@PathVariable final String productId) {
+        final Product product = productRepository
+            .findById(productId)
+            .orElseThrow(() -> new ProductNotFoundException("product with id %s does not exist", productId));
+        // a matching If-None-Match turns this into a 304 without body
+        return ResponseEntity.ok().eTag(String.valueOf(product.getVersion())).body(product);
+    }
+
+    /**
+     * Looks up the given products with one query. Unknown ids are left out, the ETag covers id and version of every
+     * product found.
+     */
+    @RequestMapping(value = "/products", method = RequestMethod.GET, params = "ids")
+    public ResponseEntity<List<Product>> getProducts(@RequestParam final List<String> ids) {
+        final Set<String> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxPageSize) {
+            throw new ProductBadRequestException("at most " + maxPageSize + " ids per request");
+        }
+
+        final Map<String, Product> found = new HashMap<>();
+        productRepository.findAllById(distinctIds).forEach(product -> found.put(product.getId(), product));
+        final List<Product> products = new ArrayList<>(found.size());
+        final StringBuilder versions = new StringBuilder();
+        for (final String id : distinctIds) {
+            final Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+                versions.append(id).append(':').append(product.getVersion()).append(';');
+            }
+        }
+        final String eTag = DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+        return ResponseEntity.ok().eTag(eTag).body(products);
+    }
+
+    /**
+     * Without paging parameters the whole catalog is streamed as one array. With <code>after</code> and/or
+     * <code>limit</code> a page of products ordered by id is returned, the next page is linked in the
+     * <code>Link</code> header as long as the page is full.
+     */
     @RequestMapping(value = "/products", method = RequestMethod.GET)
-    public List<Product> getAll() {
-        return productRepository.findAll();
+    public void getAll(@RequestParam(required = false) final String after,
+        @RequestParam(required = false) final Integer limit, final HttpServletResponse response) throws IOException {
+        if (after == null && limit == null) {
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            productExporter.writeAll(response.getOutputStream());
+            return;
+        }
+
+        final int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        final List<Product> page = productRepository.findByIdGreaterThanOrderByIdAsc(after == null ? "" : after,
+            PageRequest.of(0, pageSize));
+        if (page.size() == pageSize) {
+            final String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", page.get(page.size() - 1).getId())
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+            response.setHeader(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), page);
     }
 
 }
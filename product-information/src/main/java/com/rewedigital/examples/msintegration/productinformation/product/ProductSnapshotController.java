@@ -0,0 +1,44 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ProductSnapshotController {
+
+    private final ProductSnapshotJob snapshotJob;
+
+    @Inject
+    public ProductSnapshotController(final ProductSnapshotJob snapshotJob) {
+        this.snapshotJob = Objects.requireNonNull(snapshotJob);
+    }
+
+    /**
+     * Starts republishing all products. An incomplete earlier run is resumed unless <code>restart</code> is set.
+     */
+    @RequestMapping(value = "/snapshots/products", method = RequestMethod.POST)
+    public ResponseEntity<SnapshotCursor> startSnapshot(
+        @RequestParam(required = false, defaultValue = "false") final boolean restart) {
+        if (!snapshotJob.isAvailable()) {
+            // on a compacted topic a snapshot could outlast a newer event of its product
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        final HttpStatus status = snapshotJob.start(restart) ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(snapshotJob.cursor());
+    }
+
+    @RequestMapping(value = "/snapshots/products", method = RequestMethod.GET)
+    public ResponseEntity<SnapshotCursor> getSnapshot() {
+        return ResponseEntity.ok()
+            .header("X-Snapshot-Running", String.valueOf(snapshotJob.isRunning()))
+            .body(snapshotJob.cursor());
+    }
+}
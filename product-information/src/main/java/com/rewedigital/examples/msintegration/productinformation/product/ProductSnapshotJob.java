@@ -0,0 +1,188 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.IdGenerator;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.DomainEvent;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.SnapshotRelay;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.RequiredSearch;
+
+/**
+ * Republishes the whole catalog as <code>product-created</code> events, so that consumers can rebuild their state
+ * without replaying the topic. Products are read page by page in id order and the cursor is stored once a page is
+ * acknowledged, an interrupted run resumes after the last complete page. The run is throttled to a maximum rate and
+ * pauses while the outbox has a backlog, so the live events keep precedence. Products are published through the
+ * {@link SnapshotRelay}, so a snapshot does not follow a newer live event of its product.
+ */
+@Component
+public class ProductSnapshotJob implements DisposableBean {
+
+    static final String CURSOR = "products";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSnapshotJob.class);
+
+    private final JpaProductRepository productRepository;
+    private final JpaSnapshotCursorRepository cursorRepository;
+    private final SnapshotRelay snapshotRelay;
+    private final ObjectMapper objectMapper;
+    private final IdGenerator idGenerator;
+    private final RequiredSearch outboxBacklog;
+    private final int pageSize;
+    private final int maxEventsPerSecond;
+    private final long maxOutboxBacklog;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor =
+        Executors.newSingleThreadExecutor(new CustomizableThreadFactory("product-snapshot-"));
+
+    @Inject
+    public ProductSnapshotJob(final JpaProductRepository productRepository,
+        final JpaSnapshotCursorRepository cursorRepository, final SnapshotRelay snapshotRelay,
+        final ObjectMapper objectMapper, final IdGenerator idGenerator, final MeterRegistry meterRegistry,
+        @Value("${eventing.snapshot.page.size}") final int pageSize,
+        @Value("${eventing.snapshot.rate.max}") final int maxEventsPerSecond,
+        @Value("${eventing.snapshot.outbox.backlog.max}") final long maxOutboxBacklog) {
+        this.productRepository = Objects.requireNonNull(productRepository);
+        this.cursorRepository = Objects.requireNonNull(cursorRepository);
+        this.snapshotRelay = Objects.requireNonNull(snapshotRelay);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+        this.idGenerator = Objects.requireNonNull(idGenerator);
+        this.outboxBacklog = meterRegistry.get("eventing.outbox.events");
+        this.pageSize = pageSize;
+        this.maxEventsPerSecond = maxEventsPerSecond;
+        this.maxOutboxBacklog = maxOutboxBacklog;
+    }
+
+    /**
+     * Starts a run in the background unless one is running already.
+     *
+     * @param restart starts from the first product instead of resuming an incomplete run
+     * @return <code>false</code> if a run is in progress
+     * @throws IllegalStateException if snapshots are not available, see {@link #isAvailable()}
+     */
+    public boolean start(final boolean restart) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("product snapshots are not available on a compacted topic");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                run(restart);
+            } catch (final RuntimeException ex) {
+                LOG.error("Product snapshot stopped, it resumes from its cursor when started again", ex);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isAvailable() {
+        return snapshotRelay.isAvailable();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public SnapshotCursor cursor() {
+        return cursorRepository.findById(CURSOR).orElseGet(() -> new SnapshotCursor(CURSOR));
+    }
+
+    void run(final boolean restart) {
+        final SnapshotCursor stored = cursor();
+        final SnapshotCursor cursor = restart || stored.isCompleted() ? new SnapshotCursor(CURSOR) : stored;
+        LOG.info("Publishing product snapshot after id '{}'", cursor.getLastId());
+        while (!Thread.currentThread().isInterrupted()) {
+            awaitOutboxBacklog();
+            final long pageStart = System.nanoTime();
+            final List<Product> page =
+                productRepository.findByIdGreaterThanOrderByIdAsc(cursor.getLastId(), PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                cursor.complete();
+                cursorRepository.save(cursor);
+                LOG.info("Published product snapshot of {} products", cursor.getPublished());
+                return;
+            }
+
+            final List<DomainEvent> events = new ArrayList<>(page.size());
+            page.forEach(product -> events.add(toEvent(product)));
+            final int published = snapshotRelay.publish(events);
+            cursor.advance(page.get(page.size() - 1).getId(), published);
+            cursorRepository.save(cursor);
+            throttle(page.size(), System.nanoTime() - pageStart);
+        }
+    }
+
+    private DomainEvent toEvent(final Product product) {
+        final DomainEvent event = new DomainEvent();
+        event.setId(idGenerator.nextId());
+        event.setKey(product.getId());
+        event.setTime(ZonedDateTime.now(ZoneOffset.UTC));
+        event.setVersion(product.getVersion());
+        event.setEntityType(Product.class);
+        event.setType(product.getAggregateName() + "-created");
+        event.setAggregateName(product.getAggregateName());
+        try {
+            event.setPayload(objectMapper.writeValueAsBytes(product));
+        } catch (final JsonProcessingException ex) {
+            throw new IllegalStateException("could not serialize product " + product.getId(), ex);
+        }
+        return event;
+    }
+
+    private void awaitOutboxBacklog() {
+        // the gauge reads NaN if the outbox could not be counted, which does not hold the snapshot back
+        while (outboxBacklog.gauge().value() > maxOutboxBacklog && !Thread.currentThread().isInterrupted()) {
+            LOG.debug("Product snapshot waits for the outbox backlog to drop below {}", maxOutboxBacklog);
+            sleep(1000);
+        }
+    }
+
+    private void throttle(final int published, final long elapsedNanos) {
+        if (maxEventsPerSecond <= 0) {
+            return;
+        }
+        final long minimumMs = TimeUnit.SECONDS.toMillis(published) / maxEventsPerSecond;
+        sleep(minimumMs - TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private static void sleep(final long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,123 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.EventPublishingEntityListenerAdapter;
+
+/**
+ * Updates products with a single versioned <code>UPDATE</code> instead of loading them first. As such statements
+ * bypass the entity listeners, the outbox event is written here.
+ */
+@Component
+public class ProductUpdater {
+
+    private static final List<String> PATCHABLE =
+        Arrays.asList("name", "vendor", "price", "description", "productNumber", "image");
+
+    private final JpaProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final EventPublishingEntityListenerAdapter eventPublisher;
+    private final Validator validator;
+
+    @Inject
+    public ProductUpdater(final JpaProductRepository productRepository, final EntityManager entityManager,
+        final EventPublishingEntityListenerAdapter eventPublisher, final Validator validator) {
+        this.productRepository = Objects.requireNonNull(productRepository);
+        this.entityManager = Objects.requireNonNull(entityManager);
+        this.eventPublisher = Objects.requireNonNull(eventPublisher);
+        this.validator = Objects.requireNonNull(validator);
+    }
+
+    /**
+     * Replaces all attributes of the product if its version still matches.
+     */
+    @Transactional
+    public Product update(final Product product) {
+        final Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new ProductBadRequestException(describe(violations));
+        }
+
+        checkUpdated(productRepository.updateIfVersionMatches(product), product.getId());
+        product.setVersion(product.getVersion() + 1);
+        eventPublisher.publishEvent(product, "updated");
+        return product;
+    }
+
+    /**
+     * Sets only the given attributes if the version of the product still matches.
+     */
+    @Transactional
+    public Product patch(final String productId, final long version, final Map<String, Object> changes) {
+        final Map<String, Object> assignments = new LinkedHashMap<>();
+        for (final Map.Entry<String, Object> change : changes.entrySet()) {
+            if (!PATCHABLE.contains(change.getKey())) {
+                throw new ProductBadRequestException("attribute " + change.getKey() + " can not be patched");
+            }
+            if (change.getValue() != null && !(change.getValue() instanceof String)) {
+                throw new ProductBadRequestException("attribute " + change.getKey() + " must be a string");
+            }
+            final Set<ConstraintViolation<Product>> violations =
+                validator.validateValue(Product.class, change.getKey(), change.getValue());
+            if (!violations.isEmpty()) {
+                throw new ProductBadRequestException(describe(violations));
+            }
+            assignments.put(change.getKey(), change.getValue());
+        }
+        if (assignments.isEmpty()) {
+            throw new ProductBadRequestException("nothing to patch");
+        }
+
+        final Query update = entityManager.createQuery("UPDATE Product p SET "
+            + assignments.keySet().stream().map(name -> "p." + name + " = :" + name).collect(Collectors.joining(", "))
+            + ", p.version = p.version + 1 WHERE p.id = :id AND p.version = :version");
+        assignments.forEach(update::setParameter);
+        checkUpdated(update.setParameter("id", productId).setParameter("version", version).executeUpdate(),
+            productId);
+
+        // snapshot events carry the complete product, read back from the row locked by the update
+        final Product product = entityManager.find(Product.class, productId);
+        if (product.getVersion() != version + 1) {
+            // loaded earlier within this persistence context, the update bypassed it
+            entityManager.refresh(product);
+        }
+        eventPublisher.publishChanges(product, version, assignments);
+        return product;
+    }
+
+    /**
+     * A version mismatch and a missing product both update no row, only then it is worth asking which one it was.
+     */
+    private void checkUpdated(final int updatedRows, final String productId) {
+        if (updatedRows > 0) {
+            return;
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new ProductNotFoundException("product with id %s does not exist", productId);
+        }
+        throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+    }
+
+    private static String describe(final Set<ConstraintViolation<Product>> violations) {
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,54 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Progress of a snapshot run, stored after every page so that an interrupted run continues where it stopped.
+ */
+@Entity
+public class SnapshotCursor {
+
+    @Id
+    private String name;
+
+    // id of the last product published, products are published in id order
+    private String lastId;
+
+    private long published;
+
+    private boolean completed;
+
+    protected SnapshotCursor() {
+    }
+
+    SnapshotCursor(final String name) {
+        this.name = name;
+        this.lastId = "";
+    }
+
+    void advance(final String lastId, final int published) {
+        this.lastId = lastId;
+        this.published += published;
+    }
+
+    void complete() {
+        this.completed = true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+}
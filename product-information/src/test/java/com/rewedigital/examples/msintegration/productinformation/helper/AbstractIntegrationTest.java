@@ -1,6 +1,7 @@
 package com.rewedigital.examples.msintegration.productinformation.helper;
 
 import com.rewedigital.examples.msintegration.productinformation.ProductInformationApplication;
+import com.rewedigital.examples.msintegration.productinformation.product.Product;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
@@ -8,6 +9,7 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.inject.Inject;
+import java.util.UUID;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest( webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = ProductInformationApplication.class)
@@ -16,4 +18,12 @@ public abstract class AbstractIntegrationTest {
 
     @Inject protected TestRestTemplate restTemplate;
 
+    /**
+     * Creates the test product under a product number of its own.
+     */
+    protected Product postTestProduct() {
+        final Product product = TestUtil.getTestProduct();
+        product.setProductNumber(UUID.randomUUID().toString());
+        return restTemplate.postForObject("/products", product, Product.class);
+    }
 }
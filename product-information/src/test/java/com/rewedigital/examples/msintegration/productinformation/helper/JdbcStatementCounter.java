@@ -0,0 +1,80 @@
+package com.rewedigital.examples.msintegration.productinformation.helper;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Counts the statements the test thread executes, at the data source, so that statements of Hibernate and of
+ * JdbcTemplates are counted alike. A JDBC batch is executed as one statement. Import it into the test context.
+ */
+public class JdbcStatementCounter implements BeanPostProcessor {
+
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile Thread counted;
+
+    public void start() {
+        count.set(0);
+        counted = Thread.currentThread();
+    }
+
+    /**
+     * @return the statements executed since {@link #start()}
+     */
+    public int stop() {
+        counted = null;
+        return count.get();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource((DataSource) bean) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return counting(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(final String username, final String password) throws SQLException {
+                return counting(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private Connection counting(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                final Object result = invoke(connection, method, args);
+                return result instanceof Statement ? counting((Statement) result, method.getReturnType()) : result;
+            });
+    }
+
+    private Object counting(final Statement statement, final Class<?> type) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute") && Thread.currentThread() == counted) {
+                count.incrementAndGet();
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
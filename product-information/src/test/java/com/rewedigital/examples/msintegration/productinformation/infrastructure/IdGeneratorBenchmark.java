@@ -0,0 +1,95 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares random and time-ordered ids, both on their own and as primary key of an H2 table that already holds
+ * <code>rows</code> rows. Random keys land on arbitrary pages of the index, so their insert throughput drops as the
+ * index outgrows the cache, while time-ordered keys keep appending to its right edge. Not part of the test run,
+ * start it with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "time-ordered"})
+    private String generator;
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    private IdGenerator idGenerator;
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        idGenerator = "random".equals(generator) ? new RandomUuidGenerator() : new TimeOrderedIdGenerator();
+        connection = DriverManager.getConnection("jdbc:h2:mem:id-benchmark-" + generator + "-" + rows, "sa", "");
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE ids (id VARCHAR(36) PRIMARY KEY, payload VARCHAR(64))");
+        }
+        insert = connection.prepareStatement("INSERT INTO ids (id, payload) VALUES (?, 'benchmark')");
+        connection.setAutoCommit(false);
+        for (int i = 0; i < rows; i++) {
+            insert.setString(1, idGenerator.nextId());
+            insert.addBatch();
+            if (i % 10_000 == 9_999) {
+                insert.executeBatch();
+                connection.commit();
+            }
+        }
+        insert.executeBatch();
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE ids");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public String generate() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        insert.setString(1, idGenerator.nextId());
+        return insert.executeUpdate();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IdGeneratorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
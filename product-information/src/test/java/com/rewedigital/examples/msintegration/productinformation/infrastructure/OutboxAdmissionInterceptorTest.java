@@ -0,0 +1,44 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.OutboxAdmission;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxAdmissionInterceptorTest {
+
+    @Mock
+    private OutboxAdmission admission;
+
+    @Test
+    public void rejectsWritesBeyondTheDelayedOnes() throws Exception {
+        when(admission.delayMs()).thenReturn(10L);
+        when(admission.retryAfterSeconds()).thenReturn(5L);
+        final OutboxAdmissionInterceptor interceptor = new OutboxAdmissionInterceptor(admission, 0);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("POST", "/products"), response, null)).isFalse();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    }
+
+    @Test
+    public void delaysWritesWithinTheLimit() throws Exception {
+        when(admission.delayMs()).thenReturn(10L);
+        final OutboxAdmissionInterceptor interceptor = new OutboxAdmissionInterceptor(admission, 1);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("POST", "/products"), response, null)).isTrue();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("PUT", "/products/1"), response, null)).isTrue();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+}
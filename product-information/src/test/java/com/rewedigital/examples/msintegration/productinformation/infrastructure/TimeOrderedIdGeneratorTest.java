@@ -0,0 +1,58 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TimeOrderedIdGeneratorTest {
+
+    @Test
+    public void generatesVersion7Uuids() {
+        final UUID id = UUID.fromString(new TimeOrderedIdGenerator(() -> 1_500_000_000_000L).nextId());
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(1_500_000_000_000L);
+    }
+
+    @Test
+    public void idsAreStrictlyIncreasingWithinTheSameMillisecond() {
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_500_000_000_000L);
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        final List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        assertThat(ids).isEqualTo(sorted).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(ids).hasSize(40_000);
+    }
+}
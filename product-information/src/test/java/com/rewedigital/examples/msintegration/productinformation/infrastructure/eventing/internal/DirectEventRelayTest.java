@@ -0,0 +1,158 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DirectEventRelayTest {
+
+    @Mock
+    private KafkaGateway kafkaGateway;
+
+    @Mock
+    private PublishedVersions publishedVersions;
+
+    @Mock
+    private OutboxClaims outboxClaims;
+
+    @Mock
+    private RelayLeases relayLeases;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private DirectEventRelay relay;
+
+    @Before
+    public void setUp() {
+        final OutboxBatchRelay batchRelay = new OutboxBatchRelay(kafkaGateway, publishedVersions, outboxClaims,
+            new OutboxMetrics(registry, jdbcTemplate), entityManager, jdbcTemplate, 100);
+        relay = new DirectEventRelay(batchRelay, outboxClaims, new BucketLocks(), relayLeases, transactionManager, true,
+            10, 10);
+        // every bucket is owned and every row can be claimed unless a test says otherwise
+        lenient().when(relayLeases.owns(anyInt())).thenReturn(true);
+        lenient().when(outboxClaims.claim(anyCollection()))
+            .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<String>>getArgument(0)));
+    }
+
+    @Test
+    public void publishesNewerVersionsAndDeletesOutdatedAndPublishedEventsAtOnce() {
+        final DomainEvent first = event("e1", "a", 1L);
+        final DomainEvent second = event("e2", "a", 2L);
+        final DomainEvent outdated = event("e3", "b", 3L);
+        when(publishedVersions.lastPublished("product-a")).thenReturn(-1L);
+        when(publishedVersions.lastPublished("product-b")).thenReturn(5L);
+        when(kafkaGateway.publishAll(Arrays.asList(first, second))).thenReturn(Arrays.asList(acked(), acked()));
+
+        relay.relay(Arrays.asList(first, second, outdated));
+
+        verify(kafkaGateway).publishAll(Arrays.asList(first, second));
+        verify(publishedVersions).published("product-a", 2L);
+        verify(publishedVersions).store(Collections.singleton("product-a"));
+        verify(jdbcTemplate).update("DELETE FROM DOMAIN_EVENT WHERE id IN (?, ?, ?)", "e3", "e1", "e2");
+        assertThat(relayed("published")).isEqualTo(2);
+        assertThat(relayed("outdated")).isEqualTo(1);
+    }
+
+    @Test
+    public void leavesUnacknowledgedEventsInTheOutbox() {
+        final DomainEvent event = event("e1", "a", 1L);
+        final SettableListenableFuture<SendResult<String, byte[]>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("broker not available"));
+        when(publishedVersions.lastPublished("product-a")).thenReturn(-1L);
+        when(kafkaGateway.publishAll(Collections.singletonList(event)))
+            .thenReturn(Collections.singletonList(failed));
+
+        relay.relay(Collections.singletonList(event));
+
+        verify(publishedVersions, never()).published(anyString(), anyLong());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(outboxClaims).release(Collections.singletonList("e1"));
+        assertThat(relayed("failed")).isEqualTo(1);
+    }
+
+    @Test
+    public void skipsEventsWhoseOutboxRowsAreClaimedOrGone() {
+        final DomainEvent claimedElsewhere = event("e1", "a", 1L);
+        final DomainEvent event = event("e2", "b", 1L);
+        when(outboxClaims.claim(Arrays.asList("e1", "e2"))).thenReturn(Collections.singletonList("e2"));
+        when(publishedVersions.lastPublished("product-b")).thenReturn(-1L);
+        when(kafkaGateway.publishAll(Collections.singletonList(event))).thenReturn(Collections.singletonList(acked()));
+
+        relay.relay(Arrays.asList(claimedElsewhere, event));
+
+        verify(publishedVersions, never()).lastPublished("product-a");
+        verify(jdbcTemplate).update("DELETE FROM DOMAIN_EVENT WHERE id IN (?)", "e2");
+        assertThat(relayed("published")).isEqualTo(1);
+    }
+
+    @Test
+    public void leavesEventsOfBucketsOwnedByAnotherInstanceInTheOutbox() {
+        final DomainEvent moved = event("e1", "a", 1L);
+        when(relayLeases.owns(moved.getBucket())).thenReturn(false);
+
+        relay.relay(Collections.singletonList(moved));
+
+        verify(outboxClaims, never()).claim(Collections.singletonList("e1"));
+        verify(kafkaGateway, never()).publishAll(anyList());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    private double relayed(final String outcome) {
+        return registry.get("eventing.relay.events").tag("outcome", outcome).counter().count();
+    }
+
+    private static SettableListenableFuture<SendResult<String, byte[]>> acked() {
+        final SettableListenableFuture<SendResult<String, byte[]>> result = new SettableListenableFuture<>();
+        result.set(new SendResult<>(new ProducerRecord<>("products", "key", new byte[0]), null));
+        return result;
+    }
+
+    private static DomainEvent event(final String id, final String key, final Long version) {
+        final DomainEvent event = new DomainEvent();
+        event.setId(id);
+        event.setKey(key);
+        event.setVersion(version);
+        event.setAggregateName("product");
+        event.setType("product-updated");
+        event.setPayload(new byte[0]);
+        return event;
+    }
+}
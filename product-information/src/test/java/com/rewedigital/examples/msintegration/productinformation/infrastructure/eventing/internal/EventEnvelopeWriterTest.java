@@ -0,0 +1,78 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.helper.TestUtil;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.ObjectMapperConfiguration;
+import com.rewedigital.examples.msintegration.productinformation.product.Product;
+
+public class EventEnvelopeWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapperConfiguration().objectMapper();
+    private final EventEnvelopeWriter writer = new EventEnvelopeWriter(objectMapper, false);
+
+    @Test
+    public void splicesStoredPayloadIntoEnvelope() throws Exception {
+        final Product product = TestUtil.getTestProduct();
+        product.setId("4711");
+        product.setVersion(3L);
+        final DomainEvent event = event(objectMapper.writeValueAsBytes(product));
+
+        final JsonNode envelope = objectMapper.readTree(writer.write(event));
+
+        assertThat(envelope.get("id").asText()).isEqualTo("event-1");
+        assertThat(envelope.get("key").asText()).isEqualTo("4711");
+        assertThat(envelope.get("type").asText()).isEqualTo("product-updated");
+        assertThat(envelope.get("version").asLong()).isEqualTo(3L);
+        assertThat(envelope.get("time").asText()).isEqualTo("2017-01-01T09:00:00Z");
+        assertThat(envelope.get("payload")).isEqualTo(objectMapper.valueToTree(product));
+    }
+
+    @Test
+    public void decompressesStoredPayload() throws Exception {
+        final Product product = TestUtil.getTestProduct();
+        final DomainEvent event = event(PayloadCodec.LZ4.encode(objectMapper.writeValueAsBytes(product)));
+        event.setCodec(PayloadCodec.LZ4);
+
+        final JsonNode envelope = objectMapper.readTree(writer.write(event));
+
+        assertThat(envelope.get("payload")).isEqualTo(objectMapper.valueToTree(product));
+    }
+
+    @Test
+    public void forwardsCompressedPayloadAsBase64() throws Exception {
+        final EventEnvelopeWriter forwardingWriter = new EventEnvelopeWriter(objectMapper, true);
+        final byte[] payload = objectMapper.writeValueAsBytes(TestUtil.getTestProduct());
+        final DomainEvent event = event(PayloadCodec.GZIP.encode(payload));
+        event.setCodec(PayloadCodec.GZIP);
+
+        final JsonNode envelope = objectMapper.readTree(forwardingWriter.write(event));
+
+        assertThat(forwardingWriter.encodingOf(event)).isEqualTo(PayloadCodec.GZIP);
+        assertThat(PayloadCodec.GZIP.decode(envelope.get("payload").binaryValue())).isEqualTo(payload);
+    }
+
+    @Test
+    public void writesNullForMissingPayload() throws Exception {
+        final JsonNode envelope = objectMapper.readTree(writer.write(event(new byte[0])));
+
+        assertThat(envelope.get("payload").isNull()).isTrue();
+    }
+
+    private DomainEvent event(final byte[] payload) {
+        final DomainEvent event = new DomainEvent();
+        event.setId("event-1");
+        event.setKey("4711");
+        event.setTime(ZonedDateTime.parse("2017-01-01T09:00:00Z"));
+        event.setType("product-updated");
+        event.setVersion(3L);
+        event.setPayload(payload);
+        return event;
+    }
+}
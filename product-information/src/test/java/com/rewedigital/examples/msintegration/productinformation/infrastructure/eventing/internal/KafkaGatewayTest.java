@@ -0,0 +1,139 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.ObjectMapperConfiguration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KafkaGatewayTest {
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<ProducerRecord<String, byte[]>> record;
+
+    @Test
+    public void publishesDeletionsAsTombstonesOnCompactedTopic() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new SettableListenableFuture<>());
+
+        gateway(true).publish(event("product-deleted"));
+
+        verify(kafkaTemplate).send(record.capture());
+        assertThat(record.getValue().key()).isEqualTo("4711");
+        assertThat(record.getValue().value()).isNull();
+        assertThat(record.getValue().headers().lastHeader(KafkaGateway.VERSION).value()).isEqualTo("4".getBytes());
+    }
+
+    @Test
+    public void publishesDeletionsAsEventsOtherwise() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new SettableListenableFuture<>());
+
+        gateway(false).publish(event("product-deleted"));
+
+        verify(kafkaTemplate).send(record.capture());
+        assertThat(record.getValue().value()).isNotNull();
+        assertThat(record.getValue().headers().lastHeader(KafkaGateway.VERSION)).isNull();
+    }
+
+    @Test
+    public void publishesToTopicOfAggregate() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new SettableListenableFuture<>());
+
+        gateway(false).publish(event("product-updated"));
+
+        verify(kafkaTemplate).send(record.capture());
+        assertThat(record.getValue().topic()).isEqualTo("products");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEventsOfUnroutedAggregates() {
+        final DomainEvent event = event("category-updated");
+        event.setAggregateName("category");
+
+        gateway(false).publish(event);
+    }
+
+    @Test
+    public void publishesBatchInOneTransaction() {
+        when(kafkaTemplate.isTransactional()).thenReturn(true);
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(
+            invocation -> invocation.<KafkaOperations.OperationsCallback<String, byte[], ?>>getArgument(0)
+                .doInOperations(kafkaTemplate));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new SettableListenableFuture<>());
+
+        final List<ListenableFuture<SendResult<String, byte[]>>> results =
+            gateway(false).publishAll(Arrays.asList(event("product-created"), event("product-updated")));
+
+        assertThat(results).hasSize(2);
+        verify(kafkaTemplate).executeInTransaction(any());
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    public void failsWholeBatchIfTransactionIsAborted() {
+        when(kafkaTemplate.isTransactional()).thenReturn(true);
+        when(kafkaTemplate.executeInTransaction(any())).thenThrow(new KafkaException("fenced"));
+
+        final List<ListenableFuture<SendResult<String, byte[]>>> results =
+            gateway(false).publishAll(Arrays.asList(event("product-created"), event("product-updated")));
+
+        assertThat(results).hasSize(2).allSatisfy(result -> assertThat(result.isDone()).isTrue());
+        assertThatThrownBy(() -> results.get(1).get()).hasCauseInstanceOf(KafkaException.class);
+    }
+
+    private KafkaGateway gateway(final boolean compacted) {
+        return new KafkaGateway(kafkaTemplate, kafkaTemplate,
+            new EventEnvelopeWriter(new ObjectMapperConfiguration().objectMapper(), false),
+            new OutboxMetrics(new SimpleMeterRegistry(), jdbcTemplate), routing(), compacted);
+    }
+
+    private static TopicRouting routing() {
+        final TopicRouting.Route route = new TopicRouting.Route();
+        route.setName("products");
+        final TopicRouting routing = new TopicRouting();
+        routing.getRoutes().put("product", route);
+        return routing;
+    }
+
+    private static DomainEvent event(final String type) {
+        final DomainEvent event = new DomainEvent();
+        event.setId("event-1");
+        event.setKey("4711");
+        event.setTime(ZonedDateTime.parse("2017-01-01T09:00:00Z"));
+        event.setType(type);
+        event.setAggregateName("product");
+        event.setVersion(4L);
+        event.setPayload("{}".getBytes());
+        return event;
+    }
+}
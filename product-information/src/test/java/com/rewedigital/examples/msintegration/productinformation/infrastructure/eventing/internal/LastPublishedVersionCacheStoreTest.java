@@ -0,0 +1,61 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+
+/**
+ * Stores versions whose rows the cache does not know about, as another instance inserted them.
+ */
+public class LastPublishedVersionCacheStoreTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private LastPublishedVersionCache cache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void updatesARowInsertedSinceItWasFoundMissing() {
+        final String id = "product-" + UUID.randomUUID();
+        assertThat(cache.lastPublished(id)).isEqualTo(-1L);
+        jdbcTemplate.update("INSERT INTO LAST_PUBLISHED_VERSION (version, id) VALUES (?, ?)", 2L, id);
+
+        store(id, 3L);
+
+        assertThat(storedVersion(id)).isEqualTo(3L);
+    }
+
+    @Test
+    public void insertsARowThatDoesNotExist() {
+        final String id = "product-" + UUID.randomUUID();
+
+        store(id, 1L);
+
+        assertThat(storedVersion(id)).isEqualTo(1L);
+    }
+
+    private void store(final String id, final long version) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            cache.published(id, version);
+            cache.store(Collections.singleton(id));
+            return null;
+        });
+    }
+
+    private long storedVersion(final String id) {
+        return jdbcTemplate.queryForObject("SELECT version FROM LAST_PUBLISHED_VERSION WHERE id = ?", Long.class, id);
+    }
+}
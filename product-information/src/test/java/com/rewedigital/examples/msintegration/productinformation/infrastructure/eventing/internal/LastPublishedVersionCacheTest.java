@@ -0,0 +1,68 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LastPublishedVersionCacheTest {
+
+    // one entry per stripe
+    private static final int MAX_ENTRIES = 64;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private LastPublishedVersionCache cache;
+
+    private String first;
+    private String second;
+
+    @Before
+    public void setUp() {
+        cache = new LastPublishedVersionCache(entityManager, jdbcTemplate, MAX_ENTRIES);
+        // two ids sharing a stripe
+        first = "product-0";
+        second = null;
+        for (int i = 1; second == null; i++) {
+            if (stripeOf("product-" + i) == stripeOf(first)) {
+                second = "product-" + i;
+            }
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedVersionBeyondCapacity() {
+        assertThat(cache.lastPublished(first)).isEqualTo(-1L);
+        assertThat(cache.lastPublished(second)).isEqualTo(-1L);
+        assertThat(cache.lastPublished(first)).isEqualTo(-1L);
+
+        verify(entityManager, times(2)).find(LastPublishedVersion.class, first);
+        verify(entityManager, times(1)).find(LastPublishedVersion.class, second);
+    }
+
+    @Test
+    public void keepsVersionsThatAreNotStoredYet() {
+        cache.published(first, 3L);
+        cache.lastPublished(second);
+
+        assertThat(cache.lastPublished(first)).isEqualTo(3L);
+        verify(entityManager, times(1)).find(LastPublishedVersion.class, first);
+    }
+
+    private static int stripeOf(final String id) {
+        return Math.floorMod(id.hashCode(), MAX_ENTRIES);
+    }
+}
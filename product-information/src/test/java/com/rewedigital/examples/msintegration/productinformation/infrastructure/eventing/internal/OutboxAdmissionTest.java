@@ -0,0 +1,42 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.helper.TestUtil;
+
+@TestPropertySource(properties = {"eventing.admission.enabled=true", "eventing.admission.reject.events=0"})
+public class OutboxAdmissionTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private OutboxAdmission admission;
+
+    @Before
+    public void setUp() {
+        admission.sample();
+    }
+
+    @Test
+    public void rejectsWritesBeyondTheLimits() {
+        final ResponseEntity<String> response =
+            restTemplate.postForEntity("/products", TestUtil.getTestProduct(), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    }
+
+    @Test
+    public void servesReadsBeyondTheLimits() {
+        final ResponseEntity<String> response = restTemplate.getForEntity("/products?limit=1", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
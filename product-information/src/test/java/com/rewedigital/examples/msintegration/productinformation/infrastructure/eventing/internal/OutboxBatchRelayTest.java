@@ -0,0 +1,112 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static java.time.ZonedDateTime.parse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+
+/**
+ * Relays a batch whose events are acknowledged, rejected and not acknowledged in time.
+ */
+@TestPropertySource(properties = {"eventing.relay.batch.timeout.ms=200", "eventing.snapshot.ack.timeout.ms=50"})
+public class OutboxBatchRelayTest extends AbstractIntegrationTest {
+
+    @MockBean
+    private KafkaGateway kafkaGateway;
+
+    @SpyBean
+    private PublishedVersions publishedVersions;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DomainEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final DomainEvent acked = event(1L);
+    private final DomainEvent failed = event(1L);
+    private final DomainEvent timedOut = event(1L);
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            entityManager.createQuery("DELETE FROM DomainEvent").executeUpdate();
+            Arrays.asList(acked, failed, timedOut).forEach(entityManager::persist);
+            return null;
+        });
+        when(kafkaGateway.publishAll(anyList())).thenAnswer(invocation -> {
+            final List<ListenableFuture<SendResult<String, byte[]>>> results = new ArrayList<>();
+            invocation.<List<DomainEvent>>getArgument(0).forEach(event -> results.add(resultOf(event)));
+            return results;
+        });
+    }
+
+    @Test
+    public void deletesOnlyAcknowledgedEventsAndRecordsTheirVersionsOnce() {
+        final DomainEventPublisher.RelayedBatch batch = eventPublisher.relayBatch(BucketRange.all(), 0, 10);
+
+        assertThat(batch.claimed()).isEqualTo(3);
+        assertThat(entityManager.createQuery("SELECT e.id FROM DomainEvent e", String.class).getResultList())
+            .containsExactlyInAnyOrder(failed.getId(), timedOut.getId());
+        verify(publishedVersions).published(acked.lastPublishedVersionId(), 1L);
+        verify(publishedVersions, times(1)).published(anyString(), anyLong());
+        verify(publishedVersions, times(1)).store(anyCollection());
+        assertThat(entityManager.find(LastPublishedVersion.class, acked.lastPublishedVersionId()).getVersion())
+            .isEqualTo(1L);
+        assertThat(entityManager.find(LastPublishedVersion.class, failed.lastPublishedVersionId())).isNull();
+        assertThat(entityManager.find(LastPublishedVersion.class, timedOut.lastPublishedVersionId())).isNull();
+    }
+
+    private SettableListenableFuture<SendResult<String, byte[]>> resultOf(final DomainEvent event) {
+        final SettableListenableFuture<SendResult<String, byte[]>> result = new SettableListenableFuture<>();
+        if (event.getId().equals(acked.getId())) {
+            result.set(new SendResult<>(new ProducerRecord<>("products", event.getKey(), new byte[0]), null));
+        } else if (event.getId().equals(failed.getId())) {
+            result.setException(new IllegalStateException("broker not available"));
+        }
+        // otherwise never acknowledged
+        return result;
+    }
+
+    private static DomainEvent event(final long version) {
+        final DomainEvent event = new DomainEvent();
+        event.setId(UUID.randomUUID().toString());
+        event.setKey(UUID.randomUUID().toString());
+        event.setAggregateName("product");
+        event.setPayload(new byte[0]);
+        event.setTime(parse("2017-01-01T09:00:00Z[GMT]"));
+        event.setType("product-updated");
+        event.setVersion(version);
+        return event;
+    }
+}
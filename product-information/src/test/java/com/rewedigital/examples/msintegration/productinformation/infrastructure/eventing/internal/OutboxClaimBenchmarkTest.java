@@ -0,0 +1,116 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+
+/**
+ * Measures the cost of claiming a relay batch while the outbox grows. Only runs with <code>-Dbenchmark=true</code>,
+ * table sizes can be set with <code>-Dbenchmark.outbox.sizes=10000,100000,1000000</code>.
+ */
+public class OutboxClaimBenchmarkTest extends AbstractIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxClaimBenchmarkTest.class);
+    private static final int BATCH_SIZE = 100;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private DomainEventPublisher domainEventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @After
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM DOMAIN_EVENT");
+    }
+
+    @Test
+    public void claimCostStaysFlatWhileOutboxGrows() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+
+        final Map<Integer, Double> claimMicros = new LinkedHashMap<>();
+        int rows = 0;
+        for (final int size : sizes()) {
+            insertEvents(rows, size - rows);
+            rows = size;
+            claimMicros.put(size, averageClaimMicros());
+            LOG.info("claiming {} of {} outbox rows took {} micros on average", BATCH_SIZE, size, claimMicros.get(size));
+        }
+
+        final double smallest = claimMicros.values().iterator().next();
+        claimMicros.values().forEach(micros -> assertThat(micros).isLessThan(smallest * 5));
+    }
+
+    private double averageClaimMicros() {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final BucketRange buckets = BucketRange.split(4).get(0);
+        // warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            claim(transactionTemplate, buckets);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            claim(transactionTemplate, buckets);
+        }
+        return (System.nanoTime() - start) / 1000.0 / ROUNDS;
+    }
+
+    private void claim(final TransactionTemplate transactionTemplate, final BucketRange buckets) {
+        transactionTemplate.execute(status -> {
+            final List<DomainEvent> events = domainEventPublisher.findUnprocessedEvents(buckets, 0, BATCH_SIZE);
+            assertThat(events).hasSize(BATCH_SIZE);
+            status.setRollbackOnly();
+            return null;
+        });
+    }
+
+    private void insertEvents(final int offset, final int count) {
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        final byte[] payload = "{\"name\":\"benchmark\"}".getBytes();
+        final List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String key = "product-" + (offset + i);
+            batch.add(new Object[] {UUID.randomUUID().toString(), key, DomainEvent.bucketOf(key), 0L, now,
+                "product-created", payload, "product"});
+            if (batch.size() == 10_000 || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO DOMAIN_EVENT "
+                    + "(id, key, bucket, version, time, type, payload, aggregate_name) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static List<Integer> sizes() {
+        final List<Integer> result = new ArrayList<>();
+        Arrays.stream(System.getProperty("benchmark.outbox.sizes", "10000,100000,1000000").split(","))
+            .map(String::trim)
+            .map(Integer::valueOf)
+            .sorted()
+            .forEach(result::add);
+        return result;
+    }
+}
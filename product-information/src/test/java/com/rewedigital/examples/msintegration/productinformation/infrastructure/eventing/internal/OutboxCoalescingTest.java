@@ -0,0 +1,94 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.helper.TestUtil;
+import com.rewedigital.examples.msintegration.productinformation.product.Product;
+
+public class OutboxCoalescingTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EventPublishingEntityListenerAdapter adapter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Transactional
+    public void keepsOnlyTheNewestPendingEventPerKey() {
+        final Product product = TestUtil.getTestProduct();
+        product.setId("coalesced");
+        product.setVersion(0L);
+        adapter.publishEvent(product, "created");
+        entityManager.flush();
+
+        product.setVersion(1L);
+        adapter.publishEvent(product, "updated");
+        product.setVersion(2L);
+        adapter.publishEvent(product, "updated");
+
+        final List<DomainEvent> events = entityManager
+            .createQuery("SELECT e FROM DomainEvent e WHERE e.key = :key", DomainEvent.class)
+            .setParameter("key", "coalesced")
+            .getResultList();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getVersion()).isEqualTo(2L);
+        assertThat(events.get(0).getType()).isEqualTo("product-updated");
+    }
+
+    @Test
+    @Transactional
+    public void replacesEventsOfTheSameTransactionThatAreNotFlushedYet() {
+        final Product product = TestUtil.getTestProduct();
+        product.setId("coalesced-unflushed");
+        product.setVersion(0L);
+        adapter.publishEvent(product, "created");
+        product.setVersion(1L);
+        adapter.publishEvent(product, "updated");
+
+        final List<DomainEvent> events = eventsOf("coalesced-unflushed");
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    @Transactional
+    public void leavesEventsClaimedByARelayAlone() {
+        final Product product = TestUtil.getTestProduct();
+        product.setId("coalesced-claimed");
+        product.setVersion(0L);
+        adapter.publishEvent(product, "created");
+        entityManager.flush();
+        final String claimed = eventsOf("coalesced-claimed").get(0).getId();
+        jdbcTemplate.update("UPDATE DOMAIN_EVENT SET claimed_until = ? WHERE id = ?",
+            System.currentTimeMillis() + 60000, claimed);
+        entityManager.clear();
+
+        product.setVersion(1L);
+        adapter.publishEvent(product, "updated");
+
+        final List<DomainEvent> events = eventsOf("coalesced-claimed");
+        assertThat(events).extracting(DomainEvent::getVersion).containsExactlyInAnyOrder(0L, 1L);
+        assertThat(events).extracting(DomainEvent::getId).contains(claimed);
+    }
+
+    private List<DomainEvent> eventsOf(final String key) {
+        return entityManager
+            .createQuery("SELECT e FROM DomainEvent e WHERE e.key = :key", DomainEvent.class)
+            .setParameter("key", key)
+            .getResultList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.product.Product;
+
+/**
+ * Relays a delta whose base version was never published. The direct relay is off, so the created event of the
+ * product is relayed by the {@link DomainEventPublisher} before the product is returned.
+ */
+@TestPropertySource(properties = {"eventing.outbox.deltas.enabled=true", "eventing.relay.direct.enabled=false"})
+public class OutboxDeltaFallbackTest extends AbstractIntegrationTest {
+
+    @MockBean
+    private KafkaGateway kafkaGateway;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DomainEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+
+    @Before
+    public void setUp() {
+        when(kafkaGateway.publishAll(anyList())).thenAnswer(invocation -> {
+            final List<ListenableFuture<SendResult<String, byte[]>>> results = new ArrayList<>();
+            invocation.<List<DomainEvent>>getArgument(0).forEach(event -> results.add(acked(event)));
+            return results;
+        });
+        product = postTestProduct();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void publishesTheCompleteProductInsteadOfADeltaWhoseBaseVersionIsMissing() throws Exception {
+        // the delta to version 1 got lost, the product is at version 2 already
+        jdbcTemplate.update("UPDATE PRODUCT SET version = 2 WHERE id = ?", product.getId());
+        final DomainEvent delta = delta(2L);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            entityManager.persist(delta);
+            return null;
+        });
+
+        eventPublisher.relayBatch(BucketRange.all(), 0, 10);
+
+        final ArgumentCaptor<List<DomainEvent>> published = ArgumentCaptor.forClass(List.class);
+        verify(kafkaGateway, atLeastOnce()).publishAll(published.capture());
+        assertThat(published.getValue()).hasSize(1);
+        final DomainEvent event = published.getValue().get(0);
+        assertThat(event.getId()).isEqualTo(delta.getId());
+        assertThat(event.getType()).isEqualTo("product-updated");
+        assertThat(event.getVersion()).isEqualTo(2L);
+        final JsonNode payload = objectMapper.readTree(event.getCodec().decode(event.getPayload()));
+        assertThat(payload.get("name").asText()).isEqualTo(product.getName());
+        assertThat(entityManager.find(DomainEvent.class, delta.getId())).isNull();
+        assertThat(entityManager.find(LastPublishedVersion.class, delta.lastPublishedVersionId()).getVersion())
+            .isEqualTo(2L);
+    }
+
+    private DomainEvent delta(final long version) {
+        final DomainEvent event = new DomainEvent();
+        event.setId(UUID.randomUUID().toString());
+        event.setKey(product.getId());
+        event.setAggregateName("product");
+        event.setEntityType(Product.class);
+        event.setType("product-patched");
+        event.setVersion(version);
+        event.setTime(ZonedDateTime.now(ZoneOffset.UTC));
+        event.setPayload(("{\"id\":\"" + product.getId() + "\",\"version\":" + version + ",\"baseVersion\":"
+            + (version - 1) + ",\"changes\":{\"price\":\"€ 0,99\"}}").getBytes(StandardCharsets.UTF_8));
+        event.setCodec(PayloadCodec.NONE);
+        return event;
+    }
+
+    private static SettableListenableFuture<SendResult<String, byte[]>> acked(final DomainEvent event) {
+        final SettableListenableFuture<SendResult<String, byte[]>> result = new SettableListenableFuture<>();
+        result.set(new SendResult<>(new ProducerRecord<>("products", event.getKey(), new byte[0]), null));
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.rewedigital.examples.msintegration.productinformation.helper.TestUtil;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.ObjectMapperConfiguration;
+import com.rewedigital.examples.msintegration.productinformation.product.Product;
+
+/**
+ * Measures compression and decompression throughput of the payload codecs on serialized products with descriptions
+ * of <code>descriptionLength</code> characters, and prints the stored size per codec. Not part of the test run,
+ * start it with <code>main</code> from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+    private static final String[] WORDS = {"pizza", "cheese", "tomato", "sauce", "crispy", "stone-baked", "dough",
+        "mozzarella", "salami", "oven", "minutes", "preheat", "frozen", "store", "at", "-18°C", "ingredients",
+        "wheat", "flour", "water", "yeast", "salt", "may", "contain", "traces", "of", "celery", "mustard", "and",
+        "the", "with", "for", "a", "delicious", "family", "dinner", "Wagner", "Big", "Supreme", "420g"};
+
+    @Param({"NONE", "GZIP", "LZ4"})
+    private PayloadCodec codec;
+
+    @Param({"200", "2000", "8000"})
+    private int descriptionLength;
+
+    private byte[] payload;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        payload = new ObjectMapperConfiguration().objectMapper().writeValueAsBytes(product(descriptionLength));
+        encoded = codec.encode(payload);
+        System.out.printf("%n%s: %d bytes stored for %d bytes of payload (%.0f%%)%n", codec, encoded.length,
+            payload.length, 100.0 * encoded.length / payload.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(payload);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return codec.decode(encoded);
+    }
+
+    /**
+     * A product whose description is made of words typical for product texts, in a fixed pseudo random order.
+     */
+    static Product product(final int descriptionLength) {
+        final Random random = new Random(4711);
+        final StringBuilder description = new StringBuilder(descriptionLength + 16);
+        while (description.length() < descriptionLength) {
+            description.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? ". " : " ");
+        }
+        final Product product = TestUtil.getTestProduct();
+        product.setId("0166fa5b-2f4c-7a3e-9d51-8c2b7e4f1a06");
+        product.setVersion(3L);
+        product.setDescription(description.substring(0, descriptionLength));
+        return product;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PayloadCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
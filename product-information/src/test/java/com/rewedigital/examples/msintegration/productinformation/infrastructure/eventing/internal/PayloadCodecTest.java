@@ -0,0 +1,30 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.ObjectMapperConfiguration;
+
+public class PayloadCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapperConfiguration().objectMapper();
+
+    @Test
+    public void restoresPayloadWithEveryCodec() throws Exception {
+        final byte[] payload = objectMapper.writeValueAsBytes(PayloadCodecBenchmark.product(2000));
+
+        for (final PayloadCodec codec : PayloadCodec.values()) {
+            assertThat(codec.decode(codec.encode(payload))).as(codec.name()).isEqualTo(payload);
+        }
+    }
+
+    @Test
+    public void shrinksProductPayloads() throws Exception {
+        final byte[] payload = objectMapper.writeValueAsBytes(PayloadCodecBenchmark.product(2000));
+
+        assertThat(PayloadCodec.GZIP.encode(payload).length).isLessThan(payload.length / 2);
+        assertThat(PayloadCodec.LZ4.encode(payload).length).isLessThan(payload.length);
+    }
+}
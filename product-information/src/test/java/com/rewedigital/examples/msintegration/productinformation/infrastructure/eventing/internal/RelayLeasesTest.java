@@ -0,0 +1,78 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.rewedigital.examples.msintegration.productinformation.ProductInformationApplication;
+
+/**
+ * Runs several instances against the shared in-memory database. Heartbeats are triggered by the test, so an
+ * instance dies by not being called anymore.
+ */
+public class RelayLeasesTest {
+
+    private static final int SHARDS = 8;
+    private static final long TTL_MS = 1000;
+    private static final long HEARTBEAT_MS = 200;
+
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    public void sharesShardsAmongInstancesAndTakesOverShardsOfDeadInstances() throws InterruptedException {
+        final RelayLeases first = startInstance();
+        first.heartbeat();
+        assertThat(first.heldShards()).hasSize(SHARDS);
+
+        final RelayLeases second = startInstance();
+        heartbeats(3 * TTL_MS, first, second);
+        assertThat(first.heldShards()).hasSize(SHARDS / 2);
+        assertThat(second.heldShards()).hasSize(SHARDS / 2).doesNotContainAnyElementsOf(first.heldShards());
+        for (int bucket = 0; bucket < DomainEvent.BUCKETS; bucket++) {
+            assertThat(first.owns(bucket)).isNotEqualTo(second.owns(bucket));
+        }
+
+        heartbeats(3 * TTL_MS, second);
+        assertThat(first.heldShards()).isEmpty();
+        assertThat(second.heldShards()).hasSize(SHARDS);
+    }
+
+    private RelayLeases startInstance() {
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductInformationApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "eventing.scheduler.enabled=false",
+                "eventing.relay.direct.enabled=false",
+                "eventing.relay.leases.enabled=true",
+                "eventing.relay.leases.shards=" + SHARDS,
+                "eventing.relay.leases.ttl.ms=" + TTL_MS,
+                "eventing.relay.leases.heartbeat.ms=" + HEARTBEAT_MS,
+                // the schema is shared, an instance shutting down must not drop it
+                "spring.jpa.hibernate.ddl-auto=update")
+            .run();
+        instances.add(context);
+        return context.getBean(RelayLeases.class);
+    }
+
+    private static void heartbeats(final long durationMs, final RelayLeases... leases) throws InterruptedException {
+        final long end = System.currentTimeMillis() + durationMs;
+        while (System.currentTimeMillis() < end) {
+            for (final RelayLeases lease : leases) {
+                lease.heartbeat();
+            }
+            Thread.sleep(HEARTBEAT_MS);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class RelayPacerTest {
+
+    private final RelayPacer pacer = new RelayPacer(20, 160, 10, 1000, 5000, 500);
+
+    @Test
+    public void growsBatchSizeWhileBatchesAreFullAndFast() {
+        assertThat(pacer.onBatch(20, 50)).isTrue();
+        assertThat(pacer.onBatch(40, 50)).isTrue();
+        assertThat(pacer.onBatch(80, 50)).isTrue();
+        assertThat(pacer.onBatch(160, 50)).isTrue();
+
+        assertThat(pacer.batchSize()).isEqualTo(160);
+        assertThat(pacer.delayMs()).isEqualTo(10);
+    }
+
+    @Test
+    public void shrinksBatchSizeWhenLatencyTargetIsExceeded() {
+        pacer.onBatch(20, 50);
+        pacer.onBatch(40, 50);
+
+        assertThat(pacer.onBatch(80, 900)).isTrue();
+        assertThat(pacer.batchSize()).isEqualTo(40);
+    }
+
+    @Test
+    public void followsPartialBatches() {
+        pacer.onBatch(20, 50);
+        pacer.onBatch(40, 50);
+
+        assertThat(pacer.onBatch(30, 50)).isFalse();
+        assertThat(pacer.batchSize()).isEqualTo(40);
+        assertThat(pacer.delayMs()).isEqualTo(1000);
+    }
+
+    @Test
+    public void backsOffToIdleIntervalOnEmptyOutbox() {
+        assertThat(pacer.onBatch(0, 5)).isFalse();
+        assertThat(pacer.delayMs()).isEqualTo(2000);
+        pacer.onBatch(0, 5);
+        assertThat(pacer.delayMs()).isEqualTo(4000);
+        pacer.onBatch(0, 5);
+        assertThat(pacer.delayMs()).isEqualTo(5000);
+
+        pacer.onBatch(3, 5);
+        assertThat(pacer.delayMs()).isEqualTo(1000);
+        assertThat(pacer.batchSize()).isEqualTo(20);
+    }
+}
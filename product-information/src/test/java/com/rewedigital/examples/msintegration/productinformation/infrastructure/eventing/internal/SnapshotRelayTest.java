@@ -0,0 +1,109 @@
+package com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SnapshotRelayTest {
+
+    @Mock
+    private KafkaGateway kafkaGateway;
+
+    @Mock
+    private PublishedVersions publishedVersions;
+
+    private final BucketLocks bucketLocks = new BucketLocks();
+
+    private SnapshotRelay relay;
+
+    @Before
+    public void setUp() {
+        relay = new SnapshotRelay(kafkaGateway, publishedVersions, bucketLocks, false, 100, 2000);
+    }
+
+    @Test
+    public void holdsOnlyTheBucketItPublishes() throws Exception {
+        final DomainEvent a = event("a", 1L);
+        final DomainEvent b = event("b", 1L);
+        when(publishedVersions.peekLastPublished(anyString())).thenReturn(-1L);
+        final List<Boolean> otherBucketFree = new ArrayList<>();
+        when(kafkaGateway.publishSnapshot(any())).thenAnswer(invocation -> {
+            final DomainEvent other = invocation.getArgument(0) == a ? b : a;
+            otherBucketFree.add(isFree(other.getBucket()));
+            return acked();
+        });
+
+        assertThat(relay.publish(Arrays.asList(a, b))).isEqualTo(2);
+
+        assertThat(otherBucketFree).containsExactly(true, true);
+        assertThat(isFree(a.getBucket())).isTrue();
+        assertThat(isFree(b.getBucket())).isTrue();
+    }
+
+    @Test
+    public void releasesTheBucketWhenNotAcknowledgedInTime() throws Exception {
+        final DomainEvent a = event("a", 1L);
+        when(publishedVersions.peekLastPublished(anyString())).thenReturn(-1L);
+        when(kafkaGateway.publishSnapshot(a)).thenReturn(new SettableListenableFuture<>());
+
+        assertThatThrownBy(() -> relay.publish(Collections.singletonList(a)))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(isFree(a.getBucket())).isTrue();
+    }
+
+    @Test
+    public void leavesOutKeysPublishedWithANewerVersion() {
+        final DomainEvent a = event("a", 1L);
+        when(publishedVersions.peekLastPublished("product-a")).thenReturn(2L);
+
+        assertThat(relay.publish(Collections.singletonList(a))).isZero();
+        verify(kafkaGateway, never()).publishSnapshot(any());
+    }
+
+    // asked from another thread, the locks are reentrant
+    private boolean isFree(final int bucket) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!bucketLocks.tryLock(bucket)) {
+                return false;
+            }
+            bucketLocks.unlock(bucket);
+            return true;
+        }).get();
+    }
+
+    private static SettableListenableFuture<SendResult<String, byte[]>> acked() {
+        final SettableListenableFuture<SendResult<String, byte[]>> result = new SettableListenableFuture<>();
+        result.set(new SendResult<>(new ProducerRecord<>("products", "key", new byte[0]), null));
+        return result;
+    }
+
+    private static DomainEvent event(final String key, final long version) {
+        final DomainEvent event = new DomainEvent();
+        event.setId(key + "-" + version);
+        event.setKey(key);
+        event.setAggregateName("product");
+        event.setType("product-created");
+        event.setVersion(version);
+        return event;
+    }
+}
@@ -1,30 +1,57 @@
 package com.rewedigital.examples.msintegration.productinformation.product;
 
 import static java.time.ZonedDateTime.parse;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.helper.JdbcStatementCounter;
 import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.DomainEvent;
 import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.DomainEventPublisher;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.KafkaGateway;
 
+@Import(JdbcStatementCounter.class)
 public class DomainEventRepositoryTest extends AbstractIntegrationTest {
 
+    private static final int EVENTS = 100;
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    @MockBean
+    private KafkaGateway kafkaGateway;
+
     @Autowired
     private EntityManager entityManager;
 
     @Autowired
     private DomainEventPublisher eventPublisher;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcStatementCounter statementCounter;
+
     public List<DomainEvent> prepareEvents() {
         final List<DomainEvent> events = Arrays.asList(
             event("entity1", "2017-01-01T09:01:00Z[GMT]", 2L),
@@ -40,9 +67,43 @@ public class DomainEventRepositoryTest extends AbstractIntegrationTest {
     @Test
     @Transactional
     public void testFindFirstByTimeInSmallestVersion() {
+        prepareEvents();
         assertOrderEarlierVersionsFirst(findUnprocessedEvents(20));
     }
 
+    @Test
+    public void writesAndRelaysABatchWithAConstantNumberOfStatements() {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final String key = UUID.randomUUID().toString();
+        when(kafkaGateway.publishAll(anyList())).thenAnswer(invocation -> {
+            final List<ListenableFuture<SendResult<String, byte[]>>> results = new ArrayList<>();
+            invocation.<List<?>>getArgument(0).forEach(event -> results.add(acked()));
+            return results;
+        });
+        transactionTemplate.execute(status -> entityManager.createQuery("DELETE FROM DomainEvent").executeUpdate());
+
+        statementCounter.start();
+        transactionTemplate.execute(status -> {
+            for (long version = 0; version < EVENTS; version++) {
+                entityManager.persist(event(key, "2017-01-01T09:00:00Z[GMT]", version));
+            }
+            return null;
+        });
+        final int insertStatements = statementCounter.stop();
+
+        statementCounter.start();
+        final DomainEventPublisher.RelayedBatch batch = eventPublisher.relayBatch(EVENTS);
+        final int relayStatements = statementCounter.stop();
+
+        assertThat(batch.claimed()).isEqualTo(EVENTS);
+        // one statement per JDBC batch
+        assertThat(insertStatements).isEqualTo(EVENTS / JDBC_BATCH_SIZE);
+        // claim: select and mark the rows; relay: load and store the last published version, bulk delete
+        assertThat(relayStatements).isLessThanOrEqualTo(5);
+        assertThat(entityManager.createQuery("SELECT COUNT(e) FROM DomainEvent e", Long.class).getSingleResult())
+            .isZero();
+    }
+
     private void assertOrderEarlierVersionsFirst(List<DomainEvent> events) {
         for (int i = 0; i < events.size(); i++) {
             final DomainEvent e = events.get(i);
@@ -65,6 +126,12 @@ public class DomainEventRepositoryTest extends AbstractIntegrationTest {
         return eventPublisher.findUnprocessedEvents(batchSize);
     }
 
+    private static SettableListenableFuture<SendResult<String, byte[]>> acked() {
+        final SettableListenableFuture<SendResult<String, byte[]>> result = new SettableListenableFuture<>();
+        result.set(new SendResult<>(new ProducerRecord<>("products", "key", new byte[0]), null));
+        return result;
+    }
+
     private DomainEvent event(final String key, final String time, final Long version) {
         final DomainEvent p = new DomainEvent();
         p.setId(UUID.randomUUID().toString());
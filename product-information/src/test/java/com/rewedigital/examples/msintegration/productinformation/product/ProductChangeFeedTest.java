@@ -0,0 +1,99 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.ChangeLog;
+
+public class ProductChangeFeedTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String cursor;
+
+    @Before
+    public void skipEarlierChanges() {
+        cursor = String.valueOf(changeLog.head());
+    }
+
+    @Test
+    public void listsChangedProductsOnceInTheirCurrentStateAndDeletedOnes() {
+        final Product kept = postTestProduct();
+        final Product deleted = postTestProduct();
+        kept.setPrice("€ 1,49");
+        restTemplate.put("/products/{id}", kept, kept.getId());
+        restTemplate.delete("/products/{id}", deleted.getId());
+
+        final JsonNode changes = changes(cursor, 0);
+
+        assertThat(changes.get("changes")).hasSize(2);
+        final JsonNode first = changes.get("changes").get(0);
+        assertThat(first.get("id").asText()).isEqualTo(kept.getId());
+        assertThat(first.get("version").asLong()).isEqualTo(1L);
+        assertThat(first.get("deleted").asBoolean()).isFalse();
+        assertThat(first.get("product").get("price").asText()).isEqualTo("€ 1,49");
+        final JsonNode second = changes.get("changes").get(1);
+        assertThat(second.get("id").asText()).isEqualTo(deleted.getId());
+        assertThat(second.get("deleted").asBoolean()).isTrue();
+        assertThat(second.has("product")).isFalse();
+
+        final String next = changes.get("cursor").asText();
+        final JsonNode none = changes(next, 0);
+        assertThat(none.get("changes")).isEmpty();
+        assertThat(none.get("cursor").asText()).isEqualTo(next);
+    }
+
+    @Test
+    public void holdsBackEmptyResponseUntilProductChanges() throws Exception {
+        final CompletableFuture<JsonNode> waiting = CompletableFuture.supplyAsync(() -> changes(cursor, 10000));
+        Thread.sleep(300);
+        final Product created = postTestProduct();
+
+        final JsonNode changes = waiting.get(10, TimeUnit.SECONDS);
+
+        assertThat(changes.get("changes")).hasSize(1);
+        assertThat(changes.get("changes").get(0).get("id").asText()).isEqualTo(created.getId());
+    }
+
+    @Test
+    public void answersEmptyAfterWaiting() {
+        final JsonNode changes = changes(cursor, 200);
+
+        assertThat(changes.get("changes")).isEmpty();
+        assertThat(changes.get("cursor").asText()).isEqualTo(cursor);
+    }
+
+    @Test
+    public void holdsBackChangesAfterAGapUntilItWasSeenForTheGracePeriod() {
+        final Product uncommitted = postTestProduct();
+        final Product committed = postTestProduct();
+        // as if the first change was written by a transaction still running, the second one long ago
+        jdbcTemplate.update("DELETE FROM CHANGE_LOG_ENTRY WHERE key = ?", uncommitted.getId());
+        jdbcTemplate.update("UPDATE CHANGE_LOG_ENTRY SET time = ? WHERE key = ?",
+            new Timestamp(System.currentTimeMillis() - 60000), committed.getId());
+
+        final ChangeLog.Page page = changeLog.read("product", Long.parseLong(cursor), 10);
+
+        assertThat(page.entries()).isEmpty();
+        assertThat(page.cursor()).isEqualTo(Long.parseLong(cursor));
+    }
+
+    private JsonNode changes(final String since, final long waitMs) {
+        return restTemplate.getForObject("/products/changes?since={since}&wait={wait}", JsonNode.class, since,
+            waitMs);
+    }
+}
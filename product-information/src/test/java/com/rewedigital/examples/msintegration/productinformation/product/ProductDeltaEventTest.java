@@ -0,0 +1,91 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.DomainEvent;
+
+@TestPropertySource(properties = {"eventing.outbox.deltas.enabled=true", "eventing.outbox.deltas.snapshot-interval=3"})
+public class ProductDeltaEventTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ProductUpdater productUpdater;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+
+    @Before
+    public void createProduct() {
+        product = postTestProduct();
+    }
+
+    @Test
+    public void publishesPatchesAsDeltasUntilTheSnapshotVersion() throws Exception {
+        productUpdater.patch(product.getId(), 0L, Collections.singletonMap("price", "€ 0,99"));
+        productUpdater.patch(product.getId(), 1L, Collections.singletonMap("vendor", null));
+
+        List<DomainEvent> events = events();
+        assertThat(events).extracting(DomainEvent::getType)
+            .containsExactly("product-created", "product-patched", "product-patched");
+        final JsonNode delta = payload(events.get(2));
+        assertThat(delta.get("version").asLong()).isEqualTo(2L);
+        assertThat(delta.get("baseVersion").asLong()).isEqualTo(1L);
+        assertThat(delta.get("changes").size()).isEqualTo(1);
+        assertThat(delta.get("changes").get("vendor").isNull()).isTrue();
+
+        productUpdater.patch(product.getId(), 2L, Collections.singletonMap("price", "€ 1,49"));
+
+        // the snapshot supersedes the pending deltas
+        events = events();
+        assertThat(events).extracting(DomainEvent::getType).containsExactly("product-updated");
+        assertThat(events.get(0).getVersion()).isEqualTo(3L);
+        assertThat(payload(events.get(0)).get("price").asText()).isEqualTo("€ 1,49");
+    }
+
+    @Test
+    public void publishesChangesOfLoadedProductsAsDeltas() throws Exception {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            entityManager.find(Product.class, product.getId()).setName("Big Pizza Supreme");
+            return null;
+        });
+
+        final DomainEvent event = events().get(1);
+        assertThat(event.getType()).isEqualTo("product-patched");
+        assertThat(event.getVersion()).isEqualTo(1L);
+        assertThat(payload(event).get("changes"))
+            .isEqualTo(objectMapper.readTree("{\"name\":\"Big Pizza Supreme\"}"));
+    }
+
+    private List<DomainEvent> events() {
+        return entityManager
+            .createQuery("SELECT e FROM DomainEvent e WHERE e.key = :key ORDER BY e.version", DomainEvent.class)
+            .setParameter("key", product.getId())
+            .getResultList();
+    }
+
+    private JsonNode payload(final DomainEvent event) throws Exception {
+        return objectMapper.readTree(event.getCodec().decode(event.getPayload()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.helper.TestUtil;
+
+public class ProductImportTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JpaProductRepository productRepository;
+
+    @Test
+    public void importsValidLinesAndReportsRejectedOnes() throws Exception {
+        final String productNumber = UUID.randomUUID().toString();
+        final Product duplicate = product(productNumber);
+        final Product missingName = product(UUID.randomUUID().toString());
+        missingName.setName(null);
+
+        final String body = String.join("\n",
+            objectMapper.writeValueAsString(product(productNumber)),
+            "{not json",
+            objectMapper.writeValueAsString(missingName),
+            "",
+            objectMapper.writeValueAsString(duplicate),
+            objectMapper.writeValueAsString(product(UUID.randomUUID().toString())));
+
+        final List<JsonNode> results = post(body);
+
+        assertThat(results).extracting(result -> result.get("line").asInt()).containsExactly(2, 3, 1, 5, 6);
+        assertThat(results).extracting(result -> result.get("status").asText())
+            .containsExactly("rejected", "rejected", "created", "rejected", "created");
+        assertThat(results.get(1).get("error").asText()).isEqualTo("name must not be null");
+        assertThat(productRepository.findById(results.get(2).get("id").asText())).isPresent();
+        assertThat(results.get(3).get("error").asText()).isEqualTo("productNumber already exists");
+        assertThat(results.get(2).get("version").asLong()).isEqualTo(0L);
+        assertThat(productRepository.findById(results.get(4).get("id").asText())).isPresent();
+    }
+
+    private List<JsonNode> post(final String body) throws Exception {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(ProductImporter.NDJSON));
+        final ResponseEntity<String> response =
+            restTemplate.postForEntity("/products/bulk", new HttpEntity<>(body, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+
+        final String[] lines = response.getBody().split("\n");
+        final JsonNode[] results = new JsonNode[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            results[i] = objectMapper.readTree(lines[i]);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static Product product(final String productNumber) {
+        final Product product = TestUtil.getTestProduct();
+        product.setProductNumber(productNumber);
+        return product;
+    }
+}
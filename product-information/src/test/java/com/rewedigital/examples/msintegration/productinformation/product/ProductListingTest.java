@@ -0,0 +1,60 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+
+public class ProductListingTest extends AbstractIntegrationTest {
+
+    private final List<String> created = new ArrayList<>();
+
+    @Before
+    public void createProducts() {
+        for (int i = 0; i < 3; i++) {
+            created.add(postTestProduct().getId());
+        }
+    }
+
+    @Test
+    public void followsNextLinksThroughAllPages() {
+        final List<String> ids = new ArrayList<>();
+        String next = "/products?limit=2";
+        while (next != null) {
+            final ResponseEntity<Product[]> response = restTemplate.getForEntity(next, Product[].class);
+            assertThat(response.getBody().length).isLessThanOrEqualTo(2);
+            Arrays.stream(response.getBody()).map(Product::getId).forEach(ids::add);
+            next = nextLink(response);
+        }
+
+        assertThat(ids).containsAll(created);
+        assertThat(ids).isSorted();
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void streamsWholeCatalogWithoutPagingParameters() {
+        final Product[] products = restTemplate.getForObject("/products", Product[].class);
+
+        final List<String> ids = Arrays.stream(products).map(Product::getId).collect(Collectors.toList());
+        assertThat(ids).containsAll(created);
+        assertThat(ids).isSorted();
+    }
+
+    private static String nextLink(final ResponseEntity<?> response) {
+        final String link = response.getHeaders().getFirst(HttpHeaders.LINK);
+        if (link == null) {
+            return null;
+        }
+        return link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+    }
+}
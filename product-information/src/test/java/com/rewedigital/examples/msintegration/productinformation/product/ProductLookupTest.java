@@ -0,0 +1,69 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+
+public class ProductLookupTest extends AbstractIntegrationTest {
+
+    private Product first;
+    private Product second;
+
+    @Before
+    public void createProducts() {
+        first = postTestProduct();
+        second = postTestProduct();
+    }
+
+    @Test
+    public void getsSingleProductWithVersionETag() {
+        final ResponseEntity<Product> response =
+            restTemplate.getForEntity("/products/{id}", Product.class, first.getId());
+
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+        assertThat(response.getBody().getProductNumber()).isEqualTo(first.getProductNumber());
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"0\"");
+    }
+
+    @Test
+    public void answersNotModifiedForCurrentVersion() {
+        final ResponseEntity<Product> response = getIfNoneMatch("/products/" + first.getId(), "\"0\"");
+
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    public void answersNotFoundForUnknownProduct() {
+        final ResponseEntity<Product> response = restTemplate.getForEntity("/products/unknown", Product.class);
+
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void getsMultipleProductsInRequestedOrder() {
+        final ResponseEntity<Product[]> response = restTemplate.getForEntity("/products?ids={ids}", Product[].class,
+            second.getId() + ",unknown," + first.getId());
+
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(Product::getId).containsExactly(second.getId(), first.getId());
+
+        final ResponseEntity<Product> revalidated = getIfNoneMatch(
+            "/products?ids=" + second.getId() + ",unknown," + first.getId(), response.getHeaders().getETag());
+        assertThat(revalidated.getStatusCode()).isEqualByComparingTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    private ResponseEntity<Product> getIfNoneMatch(final String url, final String eTag) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Product.class);
+    }
+}
@@ -0,0 +1,10 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the snapshot without the version cache, the last published versions are read from the database then.
+ */
+@TestPropertySource(properties = "eventing.relay.version-cache.enabled=false")
+public class ProductSnapshotJobLockingVersionsTest extends ProductSnapshotJobTest {
+}
@@ -0,0 +1,106 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.DomainEvent;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.KafkaGateway;
+import com.rewedigital.examples.msintegration.productinformation.infrastructure.eventing.internal.PublishedVersions;
+
+@TestPropertySource(properties = {"eventing.snapshot.page.size=2", "eventing.snapshot.rate.max=0",
+    "eventing.snapshot.outbox.backlog.max=1000000"})
+public class ProductSnapshotJobTest extends AbstractIntegrationTest {
+
+    @MockBean
+    private KafkaGateway kafkaGateway;
+
+    @Autowired
+    private ProductSnapshotJob snapshotJob;
+
+    @Autowired
+    private JpaSnapshotCursorRepository cursorRepository;
+
+    @Autowired
+    private PublishedVersions publishedVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String[] ids = new String[3];
+
+    @Before
+    public void createProducts() {
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = postTestProduct().getId();
+        }
+        when(kafkaGateway.publishSnapshot(any())).thenAnswer(invocation -> {
+            final SettableListenableFuture<SendResult<String, byte[]>> result = new SettableListenableFuture<>();
+            result.set(new SendResult<>(new ProducerRecord<>("products", new byte[0]), null));
+            return result;
+        });
+    }
+
+    @Test
+    public void publishesEveryProductAsCreatedEvent() {
+        snapshotJob.run(true);
+
+        final List<DomainEvent> events = published();
+        assertThat(events).extracting(DomainEvent::getKey).contains(ids);
+        assertThat(events).extracting(DomainEvent::getType).containsOnly("product-created");
+        assertThat(snapshotJob.cursor().isCompleted()).isTrue();
+        assertThat(snapshotJob.cursor().getPublished()).isEqualTo(events.size());
+    }
+
+    @Test
+    public void resumesAfterTheCursor() {
+        final SnapshotCursor cursor = new SnapshotCursor(ProductSnapshotJob.CURSOR);
+        cursor.advance(ids[1], 2);
+        cursorRepository.save(cursor);
+
+        snapshotJob.run(false);
+
+        final List<String> keys = published().stream().map(DomainEvent::getKey).collect(Collectors.toList());
+        assertThat(keys).contains(ids[2]).doesNotContain(ids[0], ids[1]);
+        assertThat(keys).isSorted();
+    }
+
+    @Test
+    public void leavesOutProductsPublishedWithANewerVersion() {
+        final String versionId = "product-" + ids[0];
+        new TransactionTemplate(transactionManager).execute(status -> {
+            publishedVersions.published(versionId, 1L);
+            publishedVersions.store(Collections.singleton(versionId));
+            return null;
+        });
+
+        snapshotJob.run(true);
+
+        assertThat(published()).extracting(DomainEvent::getKey).contains(ids[1], ids[2]).doesNotContain(ids[0]);
+    }
+
+    private List<DomainEvent> published() {
+        final ArgumentCaptor<DomainEvent> events = ArgumentCaptor.forClass(DomainEvent.class);
+        verify(kafkaGateway, atLeastOnce()).publishSnapshot(events.capture());
+        return events.getAllValues();
+    }
+}
@@ -0,0 +1,103 @@
+package com.rewedigital.examples.msintegration.productinformation.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.rewedigital.examples.msintegration.productinformation.helper.AbstractIntegrationTest;
+
+public class ProductUpdateTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private ProductUpdater productUpdater;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Product product;
+
+    @Before
+    public void createProduct() {
+        product = postTestProduct();
+    }
+
+    @Test
+    public void updatesMatchingVersionAndWritesEvent() {
+        product.setPrice("€ 1,99");
+
+        final ResponseEntity<Product> response = put(product.getId(), product);
+
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+        assertThat(response.getBody().getVersion()).isEqualTo(1L);
+        final Product stored = restTemplate.getForObject("/products/{id}", Product.class, product.getId());
+        assertThat(stored.getPrice()).isEqualTo("€ 1,99");
+        assertThat(stored.getVersion()).isEqualTo(1L);
+        assertThat(entityManager
+            .createQuery("SELECT COUNT(e) FROM DomainEvent e WHERE e.key = :key AND e.version = 1", Long.class)
+            .setParameter("key", product.getId())
+            .getSingleResult()).isEqualTo(1L);
+    }
+
+    @Test
+    public void rejectsOutdatedVersionWithConflict() {
+        product.setVersion(7L);
+
+        assertThat(put(product.getId(), product).getStatusCode()).isEqualByComparingTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    public void rejectsUnknownProductWithNotFound() {
+        product.setId("unknown");
+
+        assertThat(put("unknown", product).getStatusCode()).isEqualByComparingTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void patchesOnlyGivenAttributes() {
+        final Product patched = productUpdater.patch(product.getId(), 0L, Collections.singletonMap("price", "€ 0,99"));
+
+        assertThat(patched.getVersion()).isEqualTo(1L);
+        assertThat(patched.getPrice()).isEqualTo("€ 0,99");
+        assertThat(patched.getName()).isEqualTo(product.getName());
+    }
+
+    @Test
+    public void rejectsPatchesOfUnknownOrInvalidAttributes() {
+        assertThatThrownBy(() -> productUpdater.patch(product.getId(), 0L, Collections.singletonMap("version", "3")))
+            .isInstanceOf(ProductBadRequestException.class);
+        assertThatThrownBy(() -> productUpdater.patch(product.getId(), 0L, Collections.singletonMap("name", null)))
+            .isInstanceOf(ProductBadRequestException.class);
+        assertThatThrownBy(() -> productUpdater.patch(product.getId(), 3L, Collections.singletonMap("name", "x")))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    public void deletesProductAndWritesEventOfNextVersion() {
+        restTemplate.delete("/products/{id}", product.getId());
+
+        assertThat(restTemplate.getForEntity("/products/{id}", String.class, product.getId()).getStatusCode())
+            .isEqualByComparingTo(HttpStatus.NOT_FOUND);
+        assertThat(entityManager
+            .createQuery("SELECT COUNT(e) FROM DomainEvent e WHERE e.key = :key AND e.type = 'product-deleted' "
+                + "AND e.version = 1", Long.class)
+            .setParameter("key", product.getId())
+            .getSingleResult()).isEqualTo(1L);
+    }
+
+    private ResponseEntity<Product> put(final String productId, final Product body) {
+        return restTemplate.exchange("/products/{id}", HttpMethod.PUT, new HttpEntity<>(body), Product.class,
+            productId);
+    }
+}